@@ -0,0 +1,120 @@
+package com.example.api.service;
+
+import com.example.api.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of persisting users through {@link UserJournal}: durable creates per second from many
+ * threads, which share syncs through group commit, and the time to recover a large dataset,
+ * from the log alone or from a snapshot. Files go under {@code java.io.tmpdir}, so point that
+ * at the disk the service will use.
+ */
+public class UserJournalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Writes {
+
+        Path dir;
+        UserService service;
+
+        @Setup(Level.Iteration)
+        public void open() throws IOException {
+            dir = Files.createTempDirectory("user-journal");
+            service = new UserService(new MapUserStore(), new UserJournal(dir, Long.MAX_VALUE));
+        }
+
+        @TearDown(Level.Iteration)
+        public void close() throws IOException {
+            service.close();
+            delete(dir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Fork(1)
+    @Threads(32)
+    @Warmup(iterations = 2, time = 5)
+    @Measurement(iterations = 3, time = 10)
+    public User durableCreate(Writes writes) {
+        return writes.service.createUser(new User(null, "Soak User", "soak@example.com", 30, "active"));
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recovery {
+
+        @Param({"1000000"})
+        int users;
+
+        @Param({"false", "true"})
+        boolean snapshot;
+
+        Path dir;
+
+        @Setup(Level.Trial)
+        public void write() throws IOException {
+            dir = Files.createTempDirectory("user-journal");
+            UserService service = new UserService(new MapUserStore(), new UserJournal(dir, Long.MAX_VALUE));
+            List<User> batch = new ArrayList<>();
+            for (int id = 0; id < users; id++) {
+                batch.add(new User(null, "User " + id, "user" + id + "@example.com", 18 + id % 60, "active"));
+                if (batch.size() == 10_000 || id == users - 1) {
+                    service.createUsers(batch);
+                    batch.clear();
+                }
+            }
+            if (snapshot) {
+                service.snapshot();
+            }
+            service.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void delete() throws IOException {
+            UserJournalBenchmark.delete(dir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public long recover(Recovery recovery) throws IOException {
+        UserService service = new UserService(new MapUserStore(), new UserJournal(recovery.dir, Long.MAX_VALUE));
+        service.close();
+        return service.getUserCount();
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.api.service;
+
+import com.example.api.model.User;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap retained per user by {@link UserService} with each {@link UserStore}, indexes included,
+ * reported as the {@code bytesPerUser} secondary result next to the time to load the users. Retained heap is the difference in used
+ * heap after full collections before and after loading, so run it alone on an otherwise idle JVM.
+ * JMH sums event counters over iterations, hence a single measurement iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+public class UserStoreMemoryBenchmark {
+
+    private static final String[] STATUSES = {"active", "active", "inactive"};
+
+    @Param({"map", "compact"})
+    String store;
+
+    @Param({"1000000"})
+    int users;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public double bytesPerUser;
+    }
+
+    @Benchmark
+    public void load(Footprint footprint) {
+        long before = usedHeapAfterGc();
+        UserService service = new UserService(UserStore.create(store));
+        for (long id = 1; id <= users; id++) {
+            // Each deserialized request body has its own status string, as users arrive over HTTP
+            service.createUser(new User(null, "User " + id, "user" + id + "@example.com", (int) (18 + id % 60),
+                new String(STATUSES[(int) (id % STATUSES.length)])));
+        }
+        footprint.bytesPerUser = (usedHeapAfterGc() - before) / (double) users;
+        Reference.reachabilityFence(service);
+    }
+
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
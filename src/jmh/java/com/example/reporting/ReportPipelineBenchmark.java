@@ -0,0 +1,120 @@
+package com.example.reporting;
+
+import com.example.reporting.GatlingJUnitReportGenerator.TestResults;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the stages of the reporting pipeline separately: parsing simulation.log
+ * (tokenizing plus aggregation), aggregation alone, and JUnit XML writing. Parse and aggregate
+ * scores are records per second; run with {@code ./gradlew jmh}, which also enables the GC
+ * profiler so allocation rates are reported per record.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public class ReportPipelineBenchmark {
+
+    private static final int RECORDS = 1_000_000;
+
+    @Param({"10", "1000"})
+    int requestNames;
+
+    @Param({"0.01"})
+    double errorRate;
+
+    private Path logFile;
+    private GatlingJUnitReportGenerator generator;
+    private TestResults parsed;
+
+    // Records decoded up front, so the aggregation benchmark excludes I/O and tokenizing
+    private String[] names;
+    private long[] starts;
+    private long[] ends;
+    private boolean[] oks;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logFile = Files.createTempFile("benchmark-simulation", ".log");
+        SyntheticSimulationLog.write(logFile, RECORDS, requestNames, errorRate, 42);
+        generator = new GatlingJUnitReportGenerator();
+        parsed = parseSequential();
+
+        names = new String[RECORDS];
+        starts = new long[RECORDS];
+        ends = new long[RECORDS];
+        oks = new boolean[RECORDS];
+        int[] next = {0};
+        TestResults collector = new TestResults();
+        collector.requestListener = (name, start, end, ok) -> {
+            int i = next[0]++;
+            names[i] = name;
+            starts[i] = start;
+            ends[i] = end;
+            oks[i] = ok;
+        };
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            SimulationLogTokenizer.parseRange(channel, 0, channel.size(), collector);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(logFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public TestResults parseSequential() throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            TestResults results = SimulationLogTokenizer.parseRange(channel, 0, channel.size());
+            results.finish();
+            return results;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public TestResults parseParallel() throws IOException {
+        return generator.parseGatlingLogParallel(logFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RECORDS)
+    public TestResults aggregate() {
+        TestResults results = new TestResults();
+        for (int i = 0; i < RECORDS; i++) {
+            results.recordRequest(names[i], starts[i], ends[i], oks[i]);
+        }
+        return results;
+    }
+
+    /** Score is complete JUnit XML documents per second. */
+    @Benchmark
+    public void writeJUnitXml() throws Exception {
+        generator.writeJUnitXml(parsed, Writer.nullWriter());
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.reporting;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.SplittableRandom;
+
+/**
+ * Writes a synthetic Gatling simulation.log with a configurable number of REQUEST lines,
+ * request-name cardinality and error rate. Response times follow a long-tailed distribution
+ * so histograms and percentiles see realistic input.
+ *
+ * <p>Usage: {@code SyntheticSimulationLog <output> <lines> <requestNames> <errorRate>}
+ */
+public final class SyntheticSimulationLog {
+
+    private static final long RUN_START = 1758575836567L;
+    private static final int REQUESTS_PER_USER = 3;
+
+    private SyntheticSimulationLog() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: SyntheticSimulationLog <output> <lines> <requestNames> <errorRate>");
+            System.exit(1);
+        }
+        write(Paths.get(args[0]), Integer.parseInt(args[1]), Integer.parseInt(args[2]), Double.parseDouble(args[3]), 42);
+    }
+
+    public static void write(Path file, int lines, int requestNames, double errorRate, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("RUN\tsimulations.SyntheticSimulation\tsyntheticsimulation\t" + RUN_START
+                + "\tSynthetic benchmark run\t3.11.5\n");
+
+            long now = RUN_START + 10;
+            for (int i = 0; i < lines; i++) {
+                now += random.nextInt(3);
+                if (i % REQUESTS_PER_USER == 0) {
+                    out.write("USER\tSynthetic Scenario\tSTART\t" + now + "\n");
+                }
+
+                long responseTime = responseTime(random);
+                boolean ok = random.nextDouble() >= errorRate;
+                out.write("REQUEST\t\tRequest " + random.nextInt(requestNames) + "\t" + now + "\t" + (now + responseTime)
+                    + (ok ? "\tOK\t\n" : "\tKO\tstatus.find.is(200), but actually found 500\n"));
+
+                if (i % REQUESTS_PER_USER == REQUESTS_PER_USER - 1) {
+                    out.write("USER\tSynthetic Scenario\tEND\t" + (now + responseTime) + "\n");
+                }
+            }
+        }
+    }
+
+    /** Mostly fast responses with a log-normal-like tail reaching into seconds. */
+    private static long responseTime(SplittableRandom random) {
+        return Math.max(1, (long) Math.exp(2.5 + random.nextGaussian() * 1.1));
+    }
+}
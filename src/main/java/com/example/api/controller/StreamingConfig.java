@@ -0,0 +1,40 @@
+package com.example.api.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.time.Duration;
+
+/**
+ * Executor and timeout for streamed responses such as {@link UserController#streamUsers}. Boot's
+ * default is its shared task executor, with 8 threads, and the container's 30 second async
+ * timeout, which cuts off a stream over a large store. Streams get their own pool here, and a
+ * request that finds every thread busy and the queue full is rejected rather than left waiting.
+ */
+@Configuration
+public class StreamingConfig implements WebMvcConfigurer {
+
+    private final int threads;
+    private final Duration timeout;
+
+    public StreamingConfig(@Value("${users.streaming.threads:64}") int threads,
+                           @Value("${users.streaming.timeout:30m}") Duration timeout) {
+        this.threads = threads;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads);
+        executor.setThreadNamePrefix("user-stream-");
+        executor.initialize();
+        configurer.setTaskExecutor(executor);
+        configurer.setDefaultTimeout(timeout.toMillis());
+    }
+}
@@ -1,45 +1,319 @@
 package com.example.api.controller;
 
+import com.example.api.model.BulkResult;
 import com.example.api.model.User;
 import com.example.api.service.UserService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/users")
-@CrossOrigin(origins = "*")
+@CrossOrigin(origins = "*", exposedHeaders = UserController.NEXT_CURSOR_HEADER)
 public class UserController {
 
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    private static final int MAX_PAGE_SIZE = 1000;
+    // Bulk requests run on the request thread and share one journal sync, so keep them bounded
+    private static final int MAX_BULK_ITEMS = 1000;
+
     private final UserService userService;
+    private final UserResponseCache responseCache;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter lineWriter;
+    private final ObjectReader userReader;
+    private final ObjectReader nodeReader;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserResponseCache responseCache, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.responseCache = responseCache;
+        this.objectMapper = objectMapper;
+        // One user per line, whatever the configured indentation
+        this.lineWriter = objectMapper.writer().without(SerializationFeature.INDENT_OUTPUT);
+        this.userReader = objectMapper.readerFor(User.class);
+        this.nodeReader = objectMapper.readerFor(JsonNode.class);
+    }
+
+    /**
+     * All users as a JSON array, tagged with the store's modification count. Stores small enough
+     * to cache are answered from the response cache. Larger ones are written to the response
+     * incrementally on the request thread, so the listing is neither held in memory nor subject
+     * to the async request timeout; that is why this handler writes the servlet response itself.
+     * Like cached bodies they are gzipped here when the client accepts it, since the servlet
+     * container does not compress responses that carry a strong ETag.
+     */
+    @GetMapping(params = {"!cursor", "!limit", "!ids"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public void getAllUsers(@RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                            HttpServletResponse servletResponse) throws IOException {
+        String etag = UserResponseCache.etag(userService.getModificationCount());
+        if (matchesAny(ifNoneMatch, etag)) {
+            send(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build(), servletResponse);
+            return;
+        }
+        if (userService.getUserCount() <= UserResponseCache.MAX_CACHED_COLLECTION_SIZE) {
+            send(cachedResponse(responseCache.collection("all", userService::getAllUsers), acceptEncoding), servletResponse);
+            return;
+        }
+        servletResponse.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        servletResponse.setHeader(HttpHeaders.ETAG, etag);
+        servletResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        OutputStream out = servletResponse.getOutputStream();
+        if (acceptsGzip(acceptEncoding)) {
+            servletResponse.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            out = new GZIPOutputStream(out, 8192);
+        }
+        writeJsonArray(userService.usersAfter(null), out);
     }
 
+    /**
+     * One page of users, in id order after {@code cursor}. A full page carries the cursor of the
+     * next one in the {@value #NEXT_CURSOR_HEADER} header. Pages are tagged with the store's
+     * modification count and gzipped when large enough, like the full listing.
+     */
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        return ResponseEntity.ok(users);
+    public ResponseEntity<byte[]> getUsersPage(@RequestParam(required = false) Long cursor,
+                                               @RequestParam(required = false) Integer limit,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch)
+            throws IOException {
+        String etag = UserResponseCache.etag(userService.getModificationCount());
+        if (matchesAny(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+        if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest().build();
+        }
+        List<User> page = userService.getUsersPage(cursor, pageSize);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (page.size() == pageSize) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.get(page.size() - 1).getId()));
+        }
+        byte[] json = objectMapper.writeValueAsBytes(page);
+        if (json.length >= UserResponseCache.GZIP_MIN_BYTES && acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(UserResponseCache.gzip(json));
+        }
+        return response.body(json);
+    }
+
+    /**
+     * Users as newline-delimited JSON, written as they are read from the store. Takes the same
+     * {@code cursor} as {@link #getUsersPage}; without {@code limit} every following user is sent.
+     * The body is written on the streaming executor, with the timeout set in {@link StreamingConfig}.
+     */
+    @GetMapping(produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> streamUsers(@RequestParam(required = false) Long cursor,
+                                                             @RequestParam(required = false) Integer limit) {
+        if (limit != null && limit < 1) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> {
+            OutputStream buffered = new BufferedOutputStream(out);
+            long remaining = limit != null ? limit : Long.MAX_VALUE;
+            for (User user : userService.usersAfter(cursor)) {
+                if (remaining-- == 0) {
+                    break;
+                }
+                buffered.write(lineWriter.writeValueAsBytes(user));
+                buffered.write('\n');
+            }
+            buffered.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
+    }
+
+    /**
+     * Several users by id in one request, one result per id in request order. At most
+     * {@value #MAX_BULK_ITEMS} ids are accepted.
+     */
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<BulkResult>> getUsersByIds(@RequestParam List<Long> ids) {
+        if (ids.size() > MAX_BULK_ITEMS) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(userService.getUsersByIds(ids));
+    }
+
+    private void writeJsonArray(Iterable<User> users, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.createGenerator(new BufferedOutputStream(out))) {
+            generator.writeStartArray();
+            for (User user : users) {
+                generator.writeObject(user);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    /**
+     * Copy a response built with {@link ResponseEntity} to the servlet response, for the handlers
+     * that write it themselves.
+     */
+    private static void send(ResponseEntity<byte[]> entity, HttpServletResponse servletResponse) throws IOException {
+        servletResponse.setStatus(entity.getStatusCode().value());
+        entity.getHeaders().forEach((name, values) -> values.forEach(value -> servletResponse.addHeader(name, value)));
+        byte[] body = entity.getBody();
+        if (body != null) {
+            servletResponse.setContentLength(body.length);
+            servletResponse.getOutputStream().write(body);
+        }
+    }
+
+    /**
+     * A cached body as JSON, pre-gzipped when the client accepts it and the body is large enough.
+     * The servlet container does not compress a response that already has a Content-Encoding.
+     */
+    private static ResponseEntity<byte[]> cachedResponse(UserResponseCache.Payload payload, String acceptEncoding) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(payload.etag())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (payload.gzip() != null && acceptsGzip(acceptEncoding)) {
+            return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(payload.gzip());
+        }
+        return response.body(payload.json());
+    }
+
+    /**
+     * Whether an Accept-Encoding header allows gzip, either by name or through "*", with a
+     * non-zero quality. A named gzip takes precedence over "*".
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim();
+            double quality = 1;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim();
+                if (parameter.length() > 2 && parameter.substring(0, 2).equalsIgnoreCase("q=")) {
+                    try {
+                        quality = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if (coding.equalsIgnoreCase("gzip") || coding.equalsIgnoreCase("x-gzip")) {
+                gzip = quality;
+            } else if (coding.equals("*")) {
+                any = quality;
+            }
+        }
+        Double quality = gzip != null ? gzip : any;
+        return quality != null && quality > 0;
+    }
+
+    /**
+     * Whether an If-None-Match header names {@code etag}. It is compared weakly, as RFC 9110 asks.
+     */
+    private static boolean matchesAny(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String value = tag.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Versions named by an If-Match header, or null when there is none or it is "*". Weak and
+     * unknown tags match no version.
+     */
+    private static Set<Long> expectedVersions(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        Set<Long> versions = new HashSet<>();
+        for (String tag : ifMatch.split(",")) {
+            String value = tag.trim();
+            if (value.length() > 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                try {
+                    versions.add(Long.parseLong(value.substring(1, value.length() - 1)));
+                } catch (NumberFormatException e) {
+                    // Not one of ours, cannot match
+                }
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * The response for a write to a user that does not exist: If-Match fails on a missing
+     * resource (RFC 9110, section 13.1.1), so it is a 412 when that header was sent.
+     */
+    private static <T> ResponseEntity<T> missing(String ifMatch) {
+        return ifMatch != null ? ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build()
+                               : ResponseEntity.notFound().build();
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable Long id) {
-        Optional<User> user = userService.getUserById(id);
-        return user.map(ResponseEntity::ok)
-                  .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<byte[]> getUserById(@PathVariable Long id,
+                                              @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<User> current = userService.getUserById(id);
+        if (current.isPresent() && ifNoneMatch != null) {
+            String etag = UserResponseCache.etag(current.get().getVersion());
+            if (matchesAny(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
+        UserResponseCache.Payload user = responseCache.user(id, () -> userService.getUserById(id).orElse(null));
+        return user != null ? cachedResponse(user, acceptEncoding) : ResponseEntity.notFound().build();
     }
 
     @GetMapping("/status/{status}")
-    public ResponseEntity<List<User>> getUsersByStatus(@PathVariable String status) {
-        List<User> users = userService.getUsersByStatus(status);
-        return ResponseEntity.ok(users);
+    public ResponseEntity<byte[]> getUsersByStatus(@PathVariable String status,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = UserResponseCache.etag(userService.getModificationCount());
+        if (matchesAny(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        UserResponseCache.Payload users = responseCache.collection("status:" + status.toLowerCase(Locale.ROOT),
+                () -> userService.getUsersByStatus(status));
+        return cachedResponse(users, acceptEncoding);
     }
 
     @GetMapping("/count")
@@ -49,33 +323,95 @@ public class UserController {
     }
 
     @GetMapping("/statistics")
-    public ResponseEntity<Map<String, Object>> getUserStatistics() {
-        Map<String, Object> stats = userService.getUserStatistics();
-        return ResponseEntity.ok(stats);
+    public ResponseEntity<byte[]> getUserStatistics(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        String etag = UserResponseCache.etag(userService.getModificationCount());
+        if (matchesAny(ifNoneMatch, etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        UserResponseCache.Payload stats = responseCache.collection("statistics", userService::getUserStatistics);
+        return cachedResponse(stats, acceptEncoding);
     }
 
     @PostMapping
     public ResponseEntity<User> createUser(@RequestBody User user) {
         try {
             User createdUser = userService.createUser(user);
-            return ResponseEntity.status(HttpStatus.CREATED).body(createdUser);
-        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .eTag(UserResponseCache.etag(createdUser.getVersion()))
+                    .body(createdUser);
+        } catch (IllegalArgumentException e) {
+            // Rejected by the store; journal failures are left to become a 500
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    /**
+     * Create users from a JSON array or from newline-delimited JSON, one result per user in
+     * request order. With {@code upsert=true}, users with an id replace or create the user with
+     * that id. A body that does not parse, or has more than {@value #MAX_BULK_ITEMS} users, is
+     * rejected before anything is stored. If the journal cannot persist the batch the response
+     * is a 500, but users stored before the failure stay visible until a restart, see
+     * {@link UserService#createUsers}.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, NDJSON})
+    public ResponseEntity<List<BulkResult>> createUsers(@RequestBody byte[] body,
+                                                        @RequestParam(defaultValue = "false") boolean upsert) {
+        List<User> users = new ArrayList<>();
+        try {
+            // Reads the elements of a top-level array, or a sequence of top-level values. A null
+            // item is passed on, so that it gets its own result instead of failing the request
+            MappingIterator<JsonNode> items = nodeReader.readValues(body);
+            while (items.hasNextValue()) {
+                if (users.size() == MAX_BULK_ITEMS) {
+                    return ResponseEntity.badRequest().build();
+                }
+                JsonNode item = items.nextValue();
+                users.add(item.isNull() ? null : userReader.readValue(item));
+            }
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(upsert ? userService.upsertUsers(users) : userService.createUsers(users));
+    }
+
+    /**
+     * Delete the users whose ids are given as a JSON array, one result per id in request order.
+     * At most {@value #MAX_BULK_ITEMS} ids are accepted.
+     */
+    @DeleteMapping("/bulk")
+    public ResponseEntity<List<BulkResult>> deleteUsers(@RequestBody List<Long> ids) {
+        if (ids.size() > MAX_BULK_ITEMS) {
             return ResponseEntity.badRequest().build();
         }
+        return ResponseEntity.ok(userService.deleteUsers(ids));
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User user) {
-        Optional<User> updatedUser = userService.updateUser(id, user);
-        return updatedUser.map(ResponseEntity::ok)
-                         .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<User> updateUser(@PathVariable Long id, @RequestBody User user,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Optional<User> updatedUser;
+        try {
+            updatedUser = userService.updateUser(id, user, expectedVersions(ifMatch));
+        } catch (UserService.VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        return updatedUser.map(updated -> ResponseEntity.ok().eTag(UserResponseCache.etag(updated.getVersion())).body(updated))
+                         .orElse(missing(ifMatch));
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Void> deleteUser(@PathVariable Long id) {
-        boolean deleted = userService.deleteUser(id);
+    public ResponseEntity<Void> deleteUser(@PathVariable Long id,
+                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        boolean deleted;
+        try {
+            deleted = userService.deleteUser(id, expectedVersions(ifMatch));
+        } catch (UserService.VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
         return deleted ? ResponseEntity.noContent().build()
-                      : ResponseEntity.notFound().build();
+                      : missing(ifMatch);
     }
 
     @GetMapping("/health")
@@ -0,0 +1,137 @@
+package com.example.api.controller;
+
+import com.example.api.model.User;
+import com.example.api.service.UserService;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Serialized JSON bodies of single users and of whole collections (all users, users by status,
+ * statistics), so repeated GETs skip Jackson and, for larger bodies, gzip. Any write through
+ * {@link UserService} drops the written user and every collection.
+ * <p>
+ * Every body carries a strong ETag: a user's version for a single user, and the store's
+ * modification count, see {@link UserService#getModificationCount()}, read before loading for a collection.
+ */
+@Component
+public class UserResponseCache {
+
+    /** Bodies from this size on are also kept gzipped, matching server.compression.min-response-size. */
+    static final int GZIP_MIN_BYTES = 2048;
+    /** Larger collections are served without caching, so the cache stays small next to the store. */
+    static final int MAX_CACHED_COLLECTION_SIZE = 10_000;
+    static final int MAX_CACHED_USERS = 100_000;
+
+    /**
+     * A serialized body, its gzipped form when it is large enough to be worth compressing, and its ETag.
+     */
+    public record Payload(byte[] json, byte[] gzip, String etag) {
+    }
+
+    private record Loaded(Object value, String etag) {
+    }
+
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+    private final Map<Long, Payload> users = new ConcurrentHashMap<>();
+    private final Map<String, Payload> collections = new ConcurrentHashMap<>();
+    // Bumped by every write, so a body serialized from data read before the write is not kept
+    private final AtomicLong generation = new AtomicLong();
+
+    public UserResponseCache(UserService userService, ObjectMapper objectMapper) {
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+        userService.addWriteListener(this::invalidate);
+    }
+
+    /**
+     * Strong ETag of a version or modification count.
+     */
+    public static String etag(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * The cached body of one user, or null when {@code loader} finds no user.
+     */
+    public Payload user(Long id, Supplier<User> loader) {
+        return get(users, id, () -> {
+            User user = loader.get();
+            return user != null ? new Loaded(user, etag(user.getVersion())) : null;
+        }, users.size() < MAX_CACHED_USERS);
+    }
+
+    /**
+     * The cached body of a collection. Empty collections and those of more than
+     * {@link #MAX_CACHED_COLLECTION_SIZE} elements are serialized but not kept, so keys built from
+     * request input, such as a status no user has, cannot grow the cache.
+     */
+    public Payload collection(String key, Supplier<?> loader) {
+        return get(collections, key, () -> {
+            // Read first: the count only covers writes already applied, so the body has at least
+            // those, and a write during loading gives it an older ETag, never a newer one
+            long version = userService.getModificationCount();
+            return new Loaded(loader.get(), etag(version));
+        }, true);
+    }
+
+    private <K> Payload get(Map<K, Payload> cache, K key, Supplier<Loaded> loader, boolean cacheable) {
+        Payload cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long loadedAt = generation.get();
+        Loaded loaded = loader.get();
+        if (loaded == null) {
+            return null;
+        }
+        Object value = loaded.value();
+        Payload payload = serialize(value, loaded.etag());
+        if (cacheable && !(value instanceof Collection<?> collection
+                && (collection.isEmpty() || collection.size() > MAX_CACHED_COLLECTION_SIZE))) {
+            cache.put(key, payload);
+            // A write may have landed between loading and caching; its invalidation could have
+            // run before the put, so drop the entry here instead
+            if (generation.get() != loadedAt) {
+                cache.remove(key, payload);
+            }
+        }
+        return payload;
+    }
+
+    private void invalidate(Long id) {
+        generation.incrementAndGet();
+        users.remove(id);
+        collections.clear();
+    }
+
+    private Payload serialize(Object value, String etag) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            return new Payload(json, json.length >= GZIP_MIN_BYTES ? gzip(json) : null, etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize response", e);
+        }
+    }
+
+    static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (GZIPOutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.api.model;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Outcome of one item of a bulk request, reported at the item's position in the request.
+ */
+public record BulkResult(
+        @JsonProperty("index") int index,
+        @JsonProperty("id") Long id,
+        @JsonProperty("status") Status status,
+        @JsonProperty("user") User user,
+        @JsonProperty("error") String error) {
+
+    public enum Status {
+        CREATED, UPDATED, DELETED, FOUND, NOT_FOUND, INVALID
+    }
+
+    public static BulkResult of(int index, Status status, User user) {
+        return new BulkResult(index, user.getId(), status, user, null);
+    }
+
+    public static BulkResult of(int index, Long id, Status status) {
+        return new BulkResult(index, id, status, null, null);
+    }
+
+    public static BulkResult invalid(int index, Long id, String error) {
+        return new BulkResult(index, id, Status.INVALID, null, error);
+    }
+}
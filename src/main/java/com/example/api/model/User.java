@@ -1,5 +1,6 @@
 package com.example.api.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 public class User {
@@ -18,6 +19,10 @@ public class User {
     @JsonProperty("status")
     private String status;
 
+    // Modification count of the write that stored this user, see UserService#getModificationCount()
+    @JsonIgnore
+    private long version;
+
     // Default constructor
     public User() {}
 
@@ -71,6 +76,14 @@ public class User {
         this.status = status;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "User{" +
@@ -0,0 +1,43 @@
+package com.example.api.service;
+
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.LongStream;
+
+/**
+ * Ids as boxed {@link Long}s in a {@link ConcurrentSkipListSet} when ordered, or in a concurrent
+ * hash set when not, which is cheaper to update.
+ */
+final class BoxedIdSet implements IdSet {
+
+    private final Set<Long> ids;
+
+    BoxedIdSet(boolean ordered) {
+        this.ids = ordered ? new ConcurrentSkipListSet<>() : ConcurrentHashMap.newKeySet();
+    }
+
+    @Override
+    public boolean add(Long id) {
+        return ids.add(id);
+    }
+
+    @Override
+    public boolean remove(Long id) {
+        return ids.remove(id);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return ids.isEmpty();
+    }
+
+    @Override
+    public LongStream idsAfter(long afterId) {
+        if (ids instanceof NavigableSet<Long> ordered) {
+            return ordered.tailSet(afterId, false).stream().mapToLong(Long::longValue);
+        }
+        return ids.stream().mapToLong(Long::longValue).filter(id -> id > afterId);
+    }
+}
@@ -0,0 +1,309 @@
+package com.example.api.service;
+
+import com.example.api.model.User;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+
+/**
+ * Users packed into primitive columns, for datasets of tens of millions of users. Ids are kept
+ * in open-addressing tables of primitive longs, split into independently locked segments. The
+ * other fields live in parallel arrays at the same slot: version, age, a dictionary code for the
+ * status, and name and email together in one UTF-8 byte array. The service's id order and status
+ * index are kept in {@link IdBitmap}s rather than sets of boxed ids. With those, a user costs about
+ * a third of the heap it takes with {@link MapUserStore}, see UserStoreMemoryBenchmark.
+ * <p>
+ * {@link #get} builds a new {@link User} on every call, so changing a returned user does not
+ * change the store.
+ */
+public class CompactUserStore implements UserStore {
+
+    private static final int SEGMENT_BITS = 6;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NO_AGE = Integer.MIN_VALUE;
+    private static final short NO_STATUS = 0;
+    private static final short OTHER_STATUS = -1;
+
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+    private final StatusDictionary statuses = new StatusDictionary();
+
+    public CompactUserStore() {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    @Override
+    public User get(long id) {
+        long hash = hash(id);
+        Segment segment = segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+        segment.lock.readLock().lock();
+        try {
+            int slot = segment.find(id, hash);
+            return slot >= 0 ? segment.read(slot, statuses) : null;
+        } finally {
+            segment.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException for ids that are not positive, without calling {@code remapping}
+     */
+    @Override
+    public User compute(long id, BiFunction<Long, User, User> remapping) {
+        if (id <= 0) {
+            // Zero marks empty slots, so such ids can never be stored
+            throw new IllegalArgumentException("Ids must be positive: " + id);
+        }
+        long hash = hash(id);
+        Segment segment = segments[(int) (hash >>> (64 - SEGMENT_BITS))];
+        segment.lock.writeLock().lock();
+        try {
+            int slot = segment.find(id, hash);
+            User current = slot >= 0 ? segment.read(slot, statuses) : null;
+            User next = remapping.apply(id, current);
+            if (next == null) {
+                if (slot >= 0) {
+                    segment.delete(slot);
+                }
+            } else {
+                // Encode first, so the table is untouched if that fails
+                short statusCode = statuses.code(next.getStatus());
+                byte[] text = encodeText(next.getName(), next.getEmail());
+                if (slot < 0) {
+                    slot = segment.insert(id, hash);
+                }
+                segment.write(slot, next, statusCode, text);
+            }
+            return next;
+        } finally {
+            segment.lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public IdSet newIdSet(boolean ordered) {
+        return new IdBitmap();
+    }
+
+    private static long hash(long id) {
+        // Ids are sequential; spread them over segments and slots
+        long h = id * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+    /**
+     * One linear-probing table with its columns. Deletion shifts following entries back instead
+     * of leaving tombstones, so probe chains stay short under churn.
+     */
+    private static final class Segment {
+
+        final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        long[] ids = new long[INITIAL_CAPACITY];
+        long[] versions = new long[INITIAL_CAPACITY];
+        int[] ages = new int[INITIAL_CAPACITY];
+        short[] statusCodes = new short[INITIAL_CAPACITY];
+        byte[][] texts = new byte[INITIAL_CAPACITY][];
+        int size;
+        // Statuses of users whose status did not fit in the dictionary, by id
+        Map<Long, String> otherStatuses;
+
+        int find(long id, long hash) {
+            int mask = ids.length - 1;
+            for (int slot = (int) hash & mask; ids[slot] != 0; slot = (slot + 1) & mask) {
+                if (ids[slot] == id) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        int insert(long id, long hash) {
+            if ((size + 1) * 4L > ids.length * 3L) {
+                resize();
+            }
+            int mask = ids.length - 1;
+            int slot = (int) hash & mask;
+            while (ids[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            ids[slot] = id;
+            size++;
+            return slot;
+        }
+
+        void delete(int slot) {
+            if (otherStatuses != null) {
+                otherStatuses.remove(ids[slot]);
+            }
+            int mask = ids.length - 1;
+            int hole = slot;
+            for (int i = (hole + 1) & mask; ids[i] != 0; i = (i + 1) & mask) {
+                int home = (int) hash(ids[i]) & mask;
+                // Move the entry back if the hole lies between its home slot and where it is
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    move(i, hole);
+                    hole = i;
+                }
+            }
+            ids[hole] = 0;
+            texts[hole] = null;
+            size--;
+        }
+
+        void write(int slot, User user, short statusCode, byte[] text) {
+            versions[slot] = user.getVersion();
+            ages[slot] = user.getAge() != null ? user.getAge() : NO_AGE;
+            statusCodes[slot] = statusCode;
+            texts[slot] = text;
+            if (statusCode == OTHER_STATUS) {
+                if (otherStatuses == null) {
+                    otherStatuses = new HashMap<>();
+                }
+                otherStatuses.put(ids[slot], user.getStatus());
+            } else if (otherStatuses != null) {
+                otherStatuses.remove(ids[slot]);
+            }
+        }
+
+        User read(int slot, StatusDictionary statuses) {
+            byte[] text = texts[slot];
+            String name = null;
+            String email = null;
+            if (text != null) {
+                int header = 0;
+                int position = 0;
+                for (int shift = 0; ; shift += 7) {
+                    byte b = text[position++];
+                    header |= (b & 0x7F) << shift;
+                    if (b >= 0) {
+                        break;
+                    }
+                }
+                if (header > 0) {
+                    name = new String(text, position, header - 1, StandardCharsets.UTF_8);
+                    position += header - 1;
+                }
+                int emailStart = position;
+                email = emailStart == text.length - 1 && text[emailStart] == -1
+                    ? null
+                    : new String(text, emailStart, text.length - emailStart, StandardCharsets.UTF_8);
+            }
+            String status = statusCodes[slot] == OTHER_STATUS ? otherStatuses.get(ids[slot]) : statuses.status(statusCodes[slot]);
+            User user = new User(ids[slot], name, email, ages[slot] == NO_AGE ? null : ages[slot], status);
+            user.setVersion(versions[slot]);
+            return user;
+        }
+
+        private void move(int from, int to) {
+            ids[to] = ids[from];
+            versions[to] = versions[from];
+            ages[to] = ages[from];
+            statusCodes[to] = statusCodes[from];
+            texts[to] = texts[from];
+        }
+
+        private void resize() {
+            long[] oldIds = ids;
+            long[] oldVersions = versions;
+            int[] oldAges = ages;
+            short[] oldStatusCodes = statusCodes;
+            byte[][] oldTexts = texts;
+            int capacity = oldIds.length * 2;
+            ids = new long[capacity];
+            versions = new long[capacity];
+            ages = new int[capacity];
+            statusCodes = new short[capacity];
+            texts = new byte[capacity][];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldIds.length; i++) {
+                if (oldIds[i] != 0) {
+                    int slot = (int) hash(oldIds[i]) & mask;
+                    while (ids[slot] != 0) {
+                        slot = (slot + 1) & mask;
+                    }
+                    ids[slot] = oldIds[i];
+                    versions[slot] = oldVersions[i];
+                    ages[slot] = oldAges[i];
+                    statusCodes[slot] = oldStatusCodes[i];
+                    texts[slot] = oldTexts[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Name and email in one array: the name's UTF-8 length plus one as a varint (0 for null), the
+     * name, then the email, or a single 0xFF byte for a null email, which UTF-8 never produces.
+     * Null when both are null.
+     */
+    static byte[] encodeText(String name, String email) {
+        if (name == null && email == null) {
+            return null;
+        }
+        byte[] nameBytes = name != null ? name.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        byte[] emailBytes = email != null ? email.getBytes(StandardCharsets.UTF_8) : new byte[] {-1};
+        int header = name != null ? nameBytes.length + 1 : 0;
+        int headerBytes = 1;
+        for (int rest = header >>> 7; rest != 0; rest >>>= 7) {
+            headerBytes++;
+        }
+        byte[] text = new byte[headerBytes + nameBytes.length + emailBytes.length];
+        int position = 0;
+        for (int rest = header; ; rest >>>= 7) {
+            if ((rest & ~0x7F) == 0) {
+                text[position++] = (byte) rest;
+                break;
+            }
+            text[position++] = (byte) (rest & 0x7F | 0x80);
+        }
+        System.arraycopy(nameBytes, 0, text, position, nameBytes.length);
+        System.arraycopy(emailBytes, 0, text, position + nameBytes.length, emailBytes.length);
+        return text;
+    }
+
+    /**
+     * Statuses are a handful of repeated strings, so each is stored once and users hold a code.
+     * Codes are never reassigned; code 0 is a null status. Once all codes are taken, new statuses
+     * get {@link #OTHER_STATUS} and are kept per user by the segment, so a client sending
+     * arbitrary statuses cannot make writes fail.
+     */
+    private static final class StatusDictionary {
+
+        private final Map<String, Short> codes = new ConcurrentHashMap<>();
+        private volatile String[] names = {null};
+
+        short code(String status) {
+            if (status == null) {
+                return NO_STATUS;
+            }
+            Short code = codes.get(status);
+            return code != null ? code : add(status);
+        }
+
+        String status(short code) {
+            return names[code];
+        }
+
+        private synchronized short add(String status) {
+            Short code = codes.get(status);
+            if (code != null) {
+                return code;
+            }
+            if (names.length > Short.MAX_VALUE) {
+                return OTHER_STATUS;
+            }
+            String[] grown = Arrays.copyOf(names, names.length + 1);
+            grown[names.length] = status;
+            // Publish the name before the code, so a reader never sees a code it cannot resolve
+            names = grown;
+            codes.put(status, (short) (grown.length - 1));
+            return (short) (grown.length - 1);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.api.service;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.StampedLock;
+import java.util.stream.LongStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Ids as bits in pages of {@value #PAGE_IDS} consecutive ids, always in ascending order. Ids are
+ * handed out sequentially, so a set of a million users takes a fraction of a byte per id instead
+ * of the node and boxed {@link Long} per id of {@link BoxedIdSet}. Sparse ids cost up to a page
+ * each.
+ * <p>
+ * Bits are set and cleared with compare-and-set under a shared lock; a page that becomes empty
+ * is dropped under the exclusive lock, so an id added to it concurrently cannot be lost.
+ */
+final class IdBitmap implements IdSet {
+
+    private static final int PAGE_BITS = 10;
+    private static final int PAGE_IDS = 1 << PAGE_BITS;
+    private static final int PAGE_WORDS = PAGE_IDS / 64;
+
+    private final ConcurrentNavigableMap<Long, AtomicLongArray> pages = new ConcurrentSkipListMap<>();
+    private final StampedLock pageLock = new StampedLock();
+
+    @Override
+    public boolean add(Long id) {
+        long stamp = pageLock.readLock();
+        try {
+            AtomicLongArray page = pages.computeIfAbsent(id >> PAGE_BITS, key -> new AtomicLongArray(PAGE_WORDS));
+            int word = (int) (id >>> 6) & (PAGE_WORDS - 1);
+            long bit = 1L << id;
+            return (page.getAndAccumulate(word, bit, (bits, mask) -> bits | mask) & bit) == 0;
+        } finally {
+            pageLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean remove(Long id) {
+        long key = id >> PAGE_BITS;
+        AtomicLongArray page;
+        boolean removed;
+        long stamp = pageLock.readLock();
+        try {
+            page = pages.get(key);
+            if (page == null) {
+                return false;
+            }
+            int word = (int) (id >>> 6) & (PAGE_WORDS - 1);
+            long bit = 1L << id;
+            removed = (page.getAndAccumulate(word, bit, (bits, mask) -> bits & ~mask) & bit) != 0;
+        } finally {
+            pageLock.unlockRead(stamp);
+        }
+        if (removed && isEmpty(page)) {
+            stamp = pageLock.writeLock();
+            try {
+                if (isEmpty(page)) {
+                    pages.remove(key, page);
+                }
+            } finally {
+                pageLock.unlockWrite(stamp);
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return pages.isEmpty();
+    }
+
+    @Override
+    public LongStream idsAfter(long afterId) {
+        Iterator<Map.Entry<Long, AtomicLongArray>> tail = pages.tailMap(afterId >> PAGE_BITS, true).entrySet().iterator();
+        PrimitiveIterator.OfLong ids = new PrimitiveIterator.OfLong() {
+            private AtomicLongArray page;
+            private long pageStart;
+            private long last = afterId;
+            private boolean found;
+
+            @Override
+            public boolean hasNext() {
+                while (!found) {
+                    if (page != null) {
+                        long from = last >= pageStart ? last + 1 - pageStart : 0;
+                        for (int word = (int) (from >>> 6); word < PAGE_WORDS; word++) {
+                            long bits = page.get(word);
+                            if (word == (int) (from >>> 6)) {
+                                bits &= -1L << from;
+                            }
+                            if (bits != 0) {
+                                last = pageStart + word * 64L + Long.numberOfTrailingZeros(bits);
+                                found = true;
+                                return true;
+                            }
+                        }
+                    }
+                    if (!tail.hasNext()) {
+                        return false;
+                    }
+                    Map.Entry<Long, AtomicLongArray> next = tail.next();
+                    pageStart = next.getKey() << PAGE_BITS;
+                    page = next.getValue();
+                }
+                return true;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                found = false;
+                return last;
+            }
+        };
+        return StreamSupport.longStream(Spliterators.spliteratorUnknownSize(ids,
+            Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    private static boolean isEmpty(AtomicLongArray page) {
+        for (int word = 0; word < PAGE_WORDS; word++) {
+            if (page.get(word) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
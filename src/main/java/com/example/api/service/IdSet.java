@@ -0,0 +1,30 @@
+package com.example.api.service;
+
+import java.util.stream.LongStream;
+
+/**
+ * A concurrent set of user ids, as {@link UserService} keeps them for id order and for the status
+ * index. Each {@link UserStore} provides its own, see {@link UserStore#newIdSet}.
+ */
+public interface IdSet {
+
+    /**
+     * Ids are passed boxed, so that sets holding {@link Long}s can all share the caller's instance.
+     *
+     * @return whether {@code id} was not in the set before
+     */
+    boolean add(Long id);
+
+    /**
+     * @return whether {@code id} was in the set
+     */
+    boolean remove(Long id);
+
+    boolean isEmpty();
+
+    /**
+     * Ids greater than {@code afterId}, read lazily, so writes during iteration may or may not be
+     * seen. Ascending when the set was created ordered.
+     */
+    LongStream idsAfter(long afterId);
+}
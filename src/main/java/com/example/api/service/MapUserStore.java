@@ -0,0 +1,26 @@
+package com.example.api.service;
+
+import com.example.api.model.User;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Users as objects in a {@link ConcurrentHashMap}. Fast, but every user costs a map node, a
+ * boxed key, the {@link User} and its strings.
+ */
+public class MapUserStore implements UserStore {
+
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+
+    @Override
+    public User get(long id) {
+        return users.get(id);
+    }
+
+    @Override
+    public User compute(long id, BiFunction<Long, User, User> remapping) {
+        return users.compute(id, remapping);
+    }
+}
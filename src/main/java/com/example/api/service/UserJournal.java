@@ -0,0 +1,486 @@
+package com.example.api.service;
+
+import com.example.api.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Write-ahead log of user writes, so {@link UserService} survives restarts. Writes are appended
+ * to the current segment by one flusher thread. Each flush writes every record queued since the
+ * last one and syncs once, so concurrent writers share an fsync (group commit). Segments roll at
+ * {@value #SEGMENT_BYTES} bytes by default.
+ * <p>
+ * A snapshot holds every user as of a log position. Once it is on disk, older snapshots and the
+ * segments it covers are deleted. Recovery loads the newest snapshot and replays the segments
+ * from its position through memory mappings. A torn record at the end of the last segment,
+ * left by a crash mid-write, is cut off.
+ *
+ * <pre>
+ * record   := length:int crc32:int body
+ * body     := PUT id:long version:long age:int status:str name:str email:str | DELETE id:long version:long
+ * str      := length:int (-1 for null) utf8
+ * snapshot := "GLUS" format:int position:long modificationCount:long lastId:long PUT-record*
+ * </pre>
+ *
+ * Segments are named after the position of their first record, snapshots after their position.
+ */
+final class UserJournal implements Closeable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserJournal.class);
+
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    static final long SEGMENT_BYTES = 64L << 20;
+    private static final int SNAPSHOT_MAGIC = 0x474C5553; // "GLUS"
+    private static final int SNAPSHOT_FORMAT = 1;
+    private static final int NO_AGE = Integer.MIN_VALUE;
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".dat";
+
+    /**
+     * One replayed write: the stored user for a PUT, null for a DELETE.
+     */
+    record Entry(long id, long version, User user) {
+    }
+
+    /**
+     * Counters recovered from the snapshot and log, which the service must not hand out again.
+     */
+    record Recovered(long modificationCount, long lastId, long users, long records) {
+    }
+
+    private final Path dir;
+    private final long snapshotInterval;
+    private final long maxSegmentBytes;
+
+    private final Object appendLock = new Object();
+    private List<byte[]> pending = new ArrayList<>();
+    private long nextSequence;
+    private boolean closed;
+
+    private final Object durableLock = new Object();
+    private long durableSequence;
+    private volatile IOException failure;
+
+    private volatile long snapshotSequence;
+    private FileChannel segment;
+    private long segmentBytes;
+    private Thread flusher;
+
+    /**
+     * @param snapshotInterval log records between snapshots
+     */
+    UserJournal(Path dir, long snapshotInterval) {
+        this(dir, snapshotInterval, SEGMENT_BYTES);
+    }
+
+    UserJournal(Path dir, long snapshotInterval, long maxSegmentBytes) {
+        this.dir = dir;
+        this.snapshotInterval = snapshotInterval;
+        this.maxSegmentBytes = maxSegmentBytes;
+    }
+
+    /**
+     * Replay the newest snapshot and the log after it into {@code apply}, in write order, then
+     * start accepting appends.
+     */
+    Recovered recover(Consumer<Entry> apply) throws IOException {
+        Files.createDirectories(dir);
+        long startNanos = System.nanoTime();
+        long modificationCount = 0;
+        long lastId = 0;
+        long users = 0;
+        long records = 0;
+
+        long position = 0;
+        List<Path> snapshots = list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        if (!snapshots.isEmpty()) {
+            Path snapshot = snapshots.get(snapshots.size() - 1);
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot), 1 << 20))) {
+                if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_FORMAT) {
+                    throw new IOException("Not a user snapshot: " + snapshot);
+                }
+                position = in.readLong();
+                modificationCount = in.readLong();
+                lastId = in.readLong();
+                while (true) {
+                    int length;
+                    try {
+                        length = in.readInt();
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    int crc = in.readInt();
+                    byte[] body = new byte[length];
+                    in.readFully(body);
+                    if (crc(ByteBuffer.wrap(body)) != crc) {
+                        throw new IOException("Corrupt record in " + snapshot);
+                    }
+                    // The snapshot is fuzzy and may hold writes whose log records never reached disk
+                    Entry entry = decode(ByteBuffer.wrap(body));
+                    apply.accept(entry);
+                    modificationCount = Math.max(modificationCount, entry.version());
+                    lastId = Math.max(lastId, entry.id());
+                    users++;
+                }
+            }
+        }
+
+        List<Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        long sequence = segments.isEmpty() ? position : sequenceOf(segments.get(0));
+        if (sequence > position) {
+            throw new IOException("Log starts at " + sequence + " but the snapshot ends at " + position);
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            Path file = segments.get(i);
+            if (sequenceOf(file) != sequence) {
+                throw new IOException("Log records before " + file + " are missing");
+            }
+            boolean last = i == segments.size() - 1;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                int validEnd = 0;
+                while (buffer.remaining() >= 8) {
+                    int length = buffer.getInt();
+                    int crc = buffer.getInt();
+                    if (length <= 0 || length > buffer.remaining()) {
+                        break;
+                    }
+                    ByteBuffer body = buffer.slice(buffer.position(), length);
+                    if (crc(body) != crc) {
+                        break;
+                    }
+                    buffer.position(buffer.position() + length);
+                    validEnd = buffer.position();
+                    if (sequence >= position) {
+                        Entry entry = decode(body);
+                        apply.accept(entry);
+                        modificationCount = Math.max(modificationCount, entry.version());
+                        lastId = Math.max(lastId, entry.id());
+                        records++;
+                    }
+                    sequence++;
+                }
+                if (validEnd < channel.size()) {
+                    if (!last) {
+                        throw new IOException("Corrupt record in " + file + " at byte " + validEnd);
+                    }
+                    LOGGER.warn("Cutting off {} bytes of an incomplete write at the end of {}", channel.size() - validEnd, file);
+                    channel.truncate(validEnd);
+                    channel.force(true);
+                }
+            }
+            if (Files.size(file) == 0) {
+                Files.delete(file);
+            }
+        }
+
+        nextSequence = Math.max(sequence, position);
+        durableSequence = nextSequence;
+        snapshotSequence = position;
+        flusher = new Thread(this::flushLoop, "user-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+
+        LOGGER.info("Recovered {} users from snapshot and {} log records from {} in {} ms", users, records, dir,
+            (System.nanoTime() - startNanos) / 1_000_000);
+        return new Recovered(modificationCount, lastId, users, records);
+    }
+
+    /**
+     * Queue a PUT of {@code user}, or a DELETE of {@code id} when it is null.
+     *
+     * @return the record's position, to pass to {@link #awaitDurable(long)}
+     * @throws UncheckedIOException once a write to disk has failed, so that the write is rejected
+     *                              before it changes anything
+     */
+    long append(long id, long version, User user) {
+        byte[] record = encode(id, version, user);
+        synchronized (appendLock) {
+            if (failure != null) {
+                throw new UncheckedIOException("User journal write failed", failure);
+            }
+            if (closed) {
+                throw new IllegalStateException("User journal is closed");
+            }
+            pending.add(record);
+            appendLock.notify();
+            return nextSequence++;
+        }
+    }
+
+    /**
+     * Block until the record at {@code sequence} and all before it are synced to disk.
+     */
+    void awaitDurable(long sequence) {
+        synchronized (durableLock) {
+            while (durableSequence <= sequence) {
+                if (failure != null) {
+                    throw new UncheckedIOException("User journal write failed", failure);
+                }
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted waiting for the user journal", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Position of the next record; a snapshot taken now covers every record before it.
+     */
+    long position() {
+        synchronized (appendLock) {
+            return nextSequence;
+        }
+    }
+
+    boolean snapshotDue() {
+        return position() - snapshotSequence >= snapshotInterval;
+    }
+
+    /**
+     * Write {@code users} as the snapshot at {@code position}, then delete what it makes obsolete.
+     * The caller guarantees that every write before {@code position} is visible in {@code users}.
+     */
+    void writeSnapshot(long position, long modificationCount, long lastId, Iterable<User> users) throws IOException {
+        long startNanos = System.nanoTime();
+        Path file = dir.resolve(String.format("%s%020d%s", SNAPSHOT_PREFIX, position, SNAPSHOT_SUFFIX));
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        long count = 0;
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                 Channels.newOutputStream(channel), 1 << 20))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_FORMAT);
+            out.writeLong(position);
+            out.writeLong(modificationCount);
+            out.writeLong(lastId);
+            for (User user : users) {
+                out.write(encode(user.getId(), user.getVersion(), user));
+                count++;
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // The rename must be durable before the log it replaces is deleted
+        syncDirectory();
+        snapshotSequence = position;
+
+        // Compaction: only the newest snapshot and the segments holding records after it are needed
+        for (Path snapshot : list(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (sequenceOf(snapshot) < position) {
+                Files.deleteIfExists(snapshot);
+            }
+        }
+        List<Path> segments = list(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int i = 0; i + 1 < segments.size() && sequenceOf(segments.get(i + 1)) <= position; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+        LOGGER.info("Wrote snapshot of {} users at log position {} in {} ms", count, position,
+            (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /**
+     * Sync everything queued so far and stop the flusher.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            closed = true;
+            appendLock.notify();
+        }
+        if (flusher != null) {
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (segment != null) {
+            segment.close();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            List<byte[]> batch;
+            long end;
+            synchronized (appendLock) {
+                while (pending.isEmpty() && !closed) {
+                    try {
+                        appendLock.wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new ArrayList<>();
+                end = nextSequence;
+            }
+            try {
+                write(batch, end - batch.size());
+            } catch (IOException e) {
+                LOGGER.error("User journal write failed, further writes will fail", e);
+                synchronized (appendLock) {
+                    failure = e;
+                    pending = new ArrayList<>();
+                }
+                synchronized (durableLock) {
+                    durableLock.notifyAll();
+                }
+                return;
+            }
+            synchronized (durableLock) {
+                durableSequence = end;
+                durableLock.notifyAll();
+            }
+        }
+    }
+
+    private void write(List<byte[]> batch, long firstSequence) throws IOException {
+        long bytes = 0;
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = ByteBuffer.wrap(batch.get(i));
+            bytes += buffers[i].remaining();
+        }
+        if (segment == null || segmentBytes > 0 && segmentBytes + bytes > maxSegmentBytes) {
+            if (segment != null) {
+                segment.close();
+            }
+            segment = FileChannel.open(dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, firstSequence, SEGMENT_SUFFIX)),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            segmentBytes = 0;
+            // Syncing the segment does not sync its directory entry
+            syncDirectory();
+        }
+        long written = 0;
+        while (written < bytes) {
+            written += segment.write(buffers);
+        }
+        segment.force(false);
+        segmentBytes += bytes;
+    }
+
+    static byte[] encode(long id, long version, User user) {
+        byte[] status = user != null ? utf8(user.getStatus()) : null;
+        byte[] name = user != null ? utf8(user.getName()) : null;
+        byte[] email = user != null ? utf8(user.getEmail()) : null;
+        int length = 1 + 8 + 8;
+        if (user != null) {
+            length += 4 + 12 + length(status) + length(name) + length(email);
+        }
+        ByteBuffer record = ByteBuffer.allocate(8 + length);
+        record.putInt(length).putInt(0);
+        record.put(user != null ? PUT : DELETE).putLong(id).putLong(version);
+        if (user != null) {
+            record.putInt(user.getAge() != null ? user.getAge() : NO_AGE);
+            putString(record, status);
+            putString(record, name);
+            putString(record, email);
+        }
+        record.putInt(4, crc(ByteBuffer.wrap(record.array(), 8, length)));
+        return record.array();
+    }
+
+    private static Entry decode(ByteBuffer body) {
+        byte type = body.get();
+        long id = body.getLong();
+        long version = body.getLong();
+        if (type == DELETE) {
+            return new Entry(id, version, null);
+        }
+        int age = body.getInt();
+        String status = getString(body);
+        String name = getString(body);
+        String email = getString(body);
+        User user = new User(id, name, email, age == NO_AGE ? null : age, status);
+        user.setVersion(version);
+        return new Entry(id, version, user);
+    }
+
+    private static byte[] utf8(String value) {
+        return value != null ? value.getBytes(StandardCharsets.UTF_8) : null;
+    }
+
+    private static int length(byte[] value) {
+        return value != null ? value.length : 0;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        buffer.putInt(value != null ? value.length : -1);
+        if (value != null) {
+            buffer.put(value);
+        }
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int crc(ByteBuffer body) {
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private void syncDirectory() throws IOException {
+        try (FileChannel directory = FileChannel.open(dir, StandardOpenOption.READ)) {
+            directory.force(true);
+        }
+    }
+
+    private List<Path> list(String prefix, String suffix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> {
+                String name = file.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(suffix);
+            }).sorted().toList();
+        }
+    }
+
+    private static long sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(name.indexOf('-') + 1, name.lastIndexOf('.')));
+    }
+}
@@ -1,81 +1,625 @@
 package com.example.api.service;
 
+import com.example.api.model.BulkResult;
 import com.example.api.model.User;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
 
 @Service
 public class UserService {
 
-    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserService.class);
+
+    /**
+     * Largest id a client may choose in an upsert: the largest integer a JSON number read as a
+     * double still holds exactly, and far enough below Long.MAX_VALUE that generated ids, which
+     * follow the largest id in use, cannot overflow.
+     */
+    static final long MAX_CLIENT_ID = (1L << 53) - 1;
+
+    private final UserStore users;
+
+    // Write-ahead log when persistence is enabled, otherwise null
+    private final UserJournal journal;
+
+    // Writes hold the read lock while they change the store and append to the journal; taking the
+    // write lock waits them out, so every record before the journal's position is in the store
+    private final ReentrantReadWriteLock snapshotBarrier = new ReentrantReadWriteLock();
+    private final AtomicBoolean snapshotRunning = new AtomicBoolean();
+    private final ExecutorService snapshotExecutor;
+
+    // Position of the last record this thread appended, which its write waits to be durable
+    private final ThreadLocal<long[]> lastAppended = ThreadLocal.withInitial(() -> new long[] {-1});
+
+    // Ids in ascending order, for cursor pagination. The store's compute functions run once per
+    // write, unlike ConcurrentSkipListMap's, so the store stays the primary one.
+    private final IdSet orderedIds;
+
+    // Last id handed out; ids are never reused
+    private final AtomicLong lastId = new AtomicLong();
+
+    // Number of writes so far; each stored user carries the count of the write that stored it
+    private final AtomicLong modificationCount = new AtomicLong();
+
+    // Number of writes fully applied, advanced only once a write's compute has returned, so a
+    // reader that sees a count also sees every write it counts
+    private final AtomicLong publishedCount = new AtomicLong();
+
+    // Secondary index: lower-cased status -> ids of the users with that status
+    private final Map<String, IdSet> idsByStatus = new ConcurrentHashMap<>();
+
+    // Running aggregates for /count and /statistics, adjusted by every write
+    private final LongAdder totalUsers = new LongAdder();
+    private final LongAdder activeUsers = new LongAdder();
+    private final LongAdder inactiveUsers = new LongAdder();
+    private final LongAdder usersWithAge = new LongAdder();
+    private final LongAdder ageSum = new LongAdder();
+
+    private final List<WriteListener> writeListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Told about every created, updated or deleted user after the change is visible.
+     */
+    public interface WriteListener {
+        void userWritten(Long id);
+    }
+
+    /**
+     * Thrown when a conditional update or delete finds the user at a different version.
+     */
+    public static class VersionConflictException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public VersionConflictException(Long id, long currentVersion) {
+            super("User " + id + " is at version " + currentVersion);
+        }
+    }
 
     public UserService() {
-        // Initialize with some sample data
-        initializeSampleData();
+        this(new MapUserStore());
+    }
+
+    /**
+     * @param storeType {@code map}, or {@code compact} for datasets of millions of users, see {@link UserStore#create}
+     * @param persistenceDir directory for the write-ahead log and snapshots; empty keeps users in memory only
+     * @param snapshotInterval log records between snapshots
+     */
+    @Autowired
+    public UserService(@Value("${users.store:map}") String storeType,
+                       @Value("${users.persistence.dir:}") String persistenceDir,
+                       @Value("${users.persistence.snapshot-interval:1000000}") long snapshotInterval) {
+        this(UserStore.create(storeType),
+             persistenceDir.isBlank() ? null : new UserJournal(Path.of(persistenceDir), snapshotInterval));
+    }
+
+    public UserService(UserStore store) {
+        this(store, null);
+    }
+
+    /**
+     * Recover {@code store}'s users from {@code journal}, when given, before serving.
+     */
+    UserService(UserStore store, UserJournal journal) {
+        this.users = store;
+        this.orderedIds = store.newIdSet(true);
+        this.journal = journal;
+        boolean recoveredAnything = false;
+        if (journal != null) {
+            try {
+                UserJournal.Recovered recovered = journal.recover(this::restore);
+                modificationCount.accumulateAndGet(recovered.modificationCount(), Math::max);
+                lastId.accumulateAndGet(recovered.lastId(), Math::max);
+                publishedCount.set(modificationCount.get());
+                recoveredAnything = recovered.users() > 0 || recovered.records() > 0 || recovered.modificationCount() > 0;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not recover users from the journal", e);
+            }
+            snapshotExecutor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "user-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            snapshotExecutor = null;
+        }
+        // Initialize with some sample data, unless the journal has a history, even one that deleted every user
+        if (!recoveredAnything) {
+            initializeSampleData();
+        }
     }
 
     private void initializeSampleData() {
-        users.put(1L, new User(1L, "John Doe", "john.doe@example.com", 30, "active"));
-        users.put(2L, new User(2L, "Jane Smith", "jane.smith@example.com", 25, "active"));
-        users.put(3L, new User(3L, "Bob Johnson", "bob.johnson@example.com", 35, "inactive"));
-        users.put(4L, new User(4L, "Alice Brown", "alice.brown@example.com", 28, "active"));
-        users.put(5L, new User(5L, "Charlie Wilson", "charlie.wilson@example.com", 42, "active"));
-        users.put(6L, new User(6L, "Diana Prince", "diana.prince@example.com", 29, "active"));
-        users.put(7L, new User(7L, "Edward Norton", "edward.norton@example.com", 38, "inactive"));
-        users.put(8L, new User(8L, "Fiona Davis", "fiona.davis@example.com", 33, "active"));
-        users.put(9L, new User(9L, "George Miller", "george.miller@example.com", 45, "active"));
-        users.put(10L, new User(10L, "Helen Carter", "helen.carter@example.com", 27, "active"));
+        store(1L, new User(1L, "John Doe", "john.doe@example.com", 30, "active"));
+        store(2L, new User(2L, "Jane Smith", "jane.smith@example.com", 25, "active"));
+        store(3L, new User(3L, "Bob Johnson", "bob.johnson@example.com", 35, "inactive"));
+        store(4L, new User(4L, "Alice Brown", "alice.brown@example.com", 28, "active"));
+        store(5L, new User(5L, "Charlie Wilson", "charlie.wilson@example.com", 42, "active"));
+        store(6L, new User(6L, "Diana Prince", "diana.prince@example.com", 29, "active"));
+        store(7L, new User(7L, "Edward Norton", "edward.norton@example.com", 38, "inactive"));
+        store(8L, new User(8L, "Fiona Davis", "fiona.davis@example.com", 33, "active"));
+        store(9L, new User(9L, "George Miller", "george.miller@example.com", 45, "active"));
+        store(10L, new User(10L, "Helen Carter", "helen.carter@example.com", 27, "active"));
+        lastId.accumulateAndGet(10L, Math::max);
+        afterWrite();
+    }
+
+    public void addWriteListener(WriteListener listener) {
+        writeListeners.add(listener);
     }
 
     public List<User> getAllUsers() {
-        return new ArrayList<>(users.values());
+        List<User> all = new ArrayList<>();
+        usersAfter(null).forEach(all::add);
+        return all;
+    }
+
+    /**
+     * Up to {@code limit} users with ids greater than {@code afterId} (all ids when null), in id order.
+     */
+    public List<User> getUsersPage(Long afterId, int limit) {
+        List<User> page = new ArrayList<>(Math.min(limit, 1024));
+        for (User user : usersAfter(afterId)) {
+            if (page.size() == limit) {
+                break;
+            }
+            page.add(user);
+        }
+        return page;
+    }
+
+    /**
+     * Users with ids greater than {@code afterId} (all ids when null) in id order, read lazily
+     * so callers can stream any number of them. Writes during iteration may or may not be seen.
+     */
+    public Iterable<User> usersAfter(Long afterId) {
+        long after = afterId == null ? Long.MIN_VALUE : afterId;
+        return () -> orderedIds.idsAfter(after).mapToObj(users::get).filter(Objects::nonNull).iterator();
     }
 
     public Optional<User> getUserById(Long id) {
-        return Optional.ofNullable(users.get(id));
+        return Optional.ofNullable(id != null ? users.get(id) : null);
     }
 
     public List<User> getUsersByStatus(String status) {
-        return users.values().stream()
-                .filter(user -> status.equalsIgnoreCase(user.getStatus()))
+        IdSet ids = idsByStatus.get(normalizeStatus(status));
+        if (ids == null) {
+            return List.of();
+        }
+        // Writes update the index just before the user becomes visible, so check the stored user
+        return ids.idsAfter(Long.MIN_VALUE)
+                .mapToObj(users::get)
+                .filter(user -> user != null && status.equalsIgnoreCase(user.getStatus()))
                 .toList();
     }
 
     public User createUser(User user) {
-        Long nextId = users.keySet().stream().max(Long::compareTo).orElse(0L) + 1;
-        user.setId(nextId);
-        users.put(nextId, user);
+        storeNew(user);
+        afterWrite();
         return user;
     }
 
+    /**
+     * Create every user, ignoring any ids they carry. Ids for the whole batch are reserved at once.
+     * Like the other bulk writes, each user is visible as soon as it is stored, and the batch
+     * waits once for durability at the end: if the journal fails, this throws after some users
+     * were already served, and those not yet synced are gone after a restart.
+     *
+     * @throws UncheckedIOException if the journal could not persist the batch
+     */
+    public List<BulkResult> createUsers(List<User> newUsers) {
+        List<BulkResult> results = new ArrayList<>(newUsers.size());
+        long nextId = lastId.getAndAdd(newUsers.size()) + 1;
+        for (int i = 0; i < newUsers.size(); i++) {
+            User user = newUsers.get(i);
+            if (user == null) {
+                results.add(BulkResult.invalid(i, null, "Missing user"));
+                continue;
+            }
+            if (!storeIfAbsent(nextId + i, user)) {
+                // An upsert chose this id after the batch reserved it
+                storeNew(user);
+            }
+            results.add(BulkResult.of(i, BulkResult.Status.CREATED, user));
+        }
+        afterWrite();
+        return results;
+    }
+
+    /**
+     * Store every user under its own id, replacing any user already there, or under a new id when
+     * it has none. Ids must be positive and at most {@link #MAX_CLIENT_ID}. Durability is as for
+     * {@link #createUsers}.
+     *
+     * @throws UncheckedIOException if the journal could not persist the batch
+     */
+    public List<BulkResult> upsertUsers(List<User> newUsers) {
+        List<BulkResult> results = new ArrayList<>(newUsers.size());
+        for (int i = 0; i < newUsers.size(); i++) {
+            User user = newUsers.get(i);
+            if (user == null) {
+                results.add(BulkResult.invalid(i, null, "Missing user"));
+            } else if (user.getId() == null) {
+                storeNew(user);
+                results.add(BulkResult.of(i, BulkResult.Status.CREATED, user));
+            } else if (user.getId() <= 0) {
+                results.add(BulkResult.invalid(i, user.getId(), "Ids must be positive"));
+            } else if (user.getId() > MAX_CLIENT_ID) {
+                results.add(BulkResult.invalid(i, user.getId(), "Ids must be at most " + MAX_CLIENT_ID));
+            } else {
+                // Keep generated ids clear of the ones chosen by clients
+                lastId.accumulateAndGet(user.getId(), Math::max);
+                boolean created = store(user.getId(), user);
+                results.add(BulkResult.of(i, created ? BulkResult.Status.CREATED : BulkResult.Status.UPDATED, user));
+            }
+        }
+        afterWrite();
+        return results;
+    }
+
+    /**
+     * Look up every id, in request order.
+     */
+    public List<BulkResult> getUsersByIds(List<Long> ids) {
+        List<BulkResult> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            User user = ids.get(i) != null ? users.get(ids.get(i)) : null;
+            results.add(user != null
+                    ? BulkResult.of(i, BulkResult.Status.FOUND, user)
+                    : BulkResult.of(i, ids.get(i), BulkResult.Status.NOT_FOUND));
+        }
+        return results;
+    }
+
+    /**
+     * Delete every id, in request order. Durability is as for {@link #createUsers}.
+     *
+     * @throws UncheckedIOException if the journal could not persist the batch
+     */
+    public List<BulkResult> deleteUsers(List<Long> ids) {
+        List<BulkResult> results = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            boolean deleted = id != null && delete(id, null);
+            results.add(BulkResult.of(i, id, deleted ? BulkResult.Status.DELETED : BulkResult.Status.NOT_FOUND));
+        }
+        afterWrite();
+        return results;
+    }
+
+    /**
+     * Store {@code user} under the next free generated id. An upsert may already have taken an id
+     * handed out by {@code lastId} before it moved {@code lastId} past it, so such ids are skipped.
+     */
+    private void storeNew(User user) {
+        boolean stored;
+        do {
+            stored = storeIfAbsent(lastId.incrementAndGet(), user);
+        } while (!stored);
+    }
+
+    /**
+     * Store {@code user} under {@code id} unless a user is already there, returning whether it was stored.
+     */
+    private boolean storeIfAbsent(long id, User user) {
+        boolean[] created = new boolean[1];
+        compute(id, (key, previous) -> {
+            if (previous != null) {
+                return previous;
+            }
+            user.setId(key);
+            onWrite(key, null, user);
+            created[0] = true;
+            return user;
+        });
+        if (created[0]) {
+            notifyWrite(id);
+        }
+        return created[0];
+    }
+
+    /**
+     * Store {@code user} under {@code id}, returning whether no user was there before.
+     */
+    private boolean store(long id, User user) {
+        boolean[] created = new boolean[1];
+        compute(id, (key, previous) -> {
+            user.setId(key);
+            onWrite(key, previous, user);
+            created[0] = previous == null;
+            return user;
+        });
+        notifyWrite(id);
+        return created[0];
+    }
+
     public Optional<User> updateUser(Long id, User updatedUser) {
-        if (users.containsKey(id)) {
-            updatedUser.setId(id);
-            users.put(id, updatedUser);
-            return Optional.of(updatedUser);
+        return updateUser(id, updatedUser, null);
+    }
+
+    /**
+     * Replace a user only if it is at one of {@code expectedVersions}, or at any version when null.
+     *
+     * @throws VersionConflictException if the user exists at another version
+     */
+    public Optional<User> updateUser(Long id, User updatedUser, Set<Long> expectedVersions) {
+        if (id <= 0) {
+            // Ids are positive, and not every store accepts others
+            return Optional.empty();
         }
-        return Optional.empty();
+        // The check and the replacement happen atomically under the map's lock for this id
+        User replaced = compute(id, (key, previous) -> {
+            if (previous == null) {
+                return null;
+            }
+            checkVersion(key, previous, expectedVersions);
+            updatedUser.setId(key);
+            onWrite(key, previous, updatedUser);
+            return updatedUser;
+        });
+        if (replaced != null) {
+            notifyWrite(id);
+            afterWrite();
+        }
+        return Optional.ofNullable(replaced);
     }
 
     public boolean deleteUser(Long id) {
-        return users.remove(id) != null;
+        return deleteUser(id, null);
+    }
+
+    /**
+     * Delete a user only if it is at one of {@code expectedVersions}, or at any version when null.
+     *
+     * @throws VersionConflictException if the user exists at another version
+     */
+    public boolean deleteUser(Long id, Set<Long> expectedVersions) {
+        boolean deleted = delete(id, expectedVersions);
+        if (deleted) {
+            afterWrite();
+        }
+        return deleted;
+    }
+
+    private boolean delete(Long id, Set<Long> expectedVersions) {
+        if (id <= 0) {
+            return false;
+        }
+        boolean[] deleted = new boolean[1];
+        compute(id, (key, removed) -> {
+            if (removed == null) {
+                return null;
+            }
+            checkVersion(key, removed, expectedVersions);
+            onWrite(key, removed, null);
+            deleted[0] = true;
+            return null;
+        });
+        if (deleted[0]) {
+            notifyWrite(id);
+        }
+        return deleted[0];
+    }
+
+    /**
+     * Number of writes so far. It changes whenever any user is created, updated or deleted, but
+     * only once the write is visible in the store, the status index and the aggregates, so data
+     * read after this count includes every write it counts. A write in progress may already
+     * have given its user a higher version.
+     */
+    public long getModificationCount() {
+        return publishedCount.get();
     }
 
     public long getUserCount() {
-        return users.size();
+        return totalUsers.sum();
     }
 
     public Map<String, Object> getUserStatistics() {
         Map<String, Object> stats = new HashMap<>();
-        stats.put("totalUsers", users.size());
-        stats.put("activeUsers", getUsersByStatus("active").size());
-        stats.put("inactiveUsers", getUsersByStatus("inactive").size());
-        stats.put("averageAge", users.values().stream()
-                .mapToInt(User::getAge)
-                .average()
-                .orElse(0.0));
+        stats.put("totalUsers", totalUsers.sum());
+        stats.put("activeUsers", activeUsers.sum());
+        stats.put("inactiveUsers", inactiveUsers.sum());
+        // Users without an age are left out of the average
+        long withAge = usersWithAge.sum();
+        stats.put("averageAge", withAge > 0 ? ageSum.sum() / (double) withAge : 0.0);
         return stats;
     }
+
+    /**
+     * Write a snapshot of all users now and drop the log records and snapshots it replaces.
+     * Writes continue meanwhile; the ones it misses are replayed from the log on recovery.
+     */
+    public void snapshot() throws IOException {
+        if (journal == null) {
+            throw new IllegalStateException("Persistence is not enabled");
+        }
+        long position;
+        long modifications;
+        long id;
+        snapshotBarrier.writeLock().lock();
+        try {
+            position = journal.position();
+            modifications = modificationCount.get();
+            id = lastId.get();
+        } finally {
+            snapshotBarrier.writeLock().unlock();
+        }
+        journal.writeSnapshot(position, modifications, id, usersAfter(null));
+    }
+
+    /**
+     * Sync the journal and stop its threads. Writes fail afterwards.
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        if (journal != null) {
+            snapshotExecutor.shutdown();
+            journal.close();
+        }
+    }
+
+    /**
+     * The store's compute, inside the snapshot barrier when the journal is on.
+     */
+    private User compute(long id, BiFunction<Long, User, User> remapping) {
+        if (journal == null) {
+            return users.compute(id, remapping);
+        }
+        snapshotBarrier.readLock().lock();
+        try {
+            return users.compute(id, remapping);
+        } finally {
+            snapshotBarrier.readLock().unlock();
+        }
+    }
+
+    /**
+     * Called by public write methods before they return: wait until this thread's writes are
+     * durable, and start a snapshot in the background when enough log has built up. Waiting once
+     * per call lets bulk writes share one sync. Writes are visible to readers before this returns,
+     * so a failed sync surfaces to the writer only; readers may have seen users a restart loses.
+     */
+    private void afterWrite() {
+        if (journal == null) {
+            return;
+        }
+        long[] appended = lastAppended.get();
+        if (appended[0] >= 0) {
+            journal.awaitDurable(appended[0]);
+            appended[0] = -1;
+        }
+        if (journal.snapshotDue() && snapshotRunning.compareAndSet(false, true)) {
+            snapshotExecutor.execute(() -> {
+                try {
+                    snapshot();
+                } catch (IOException | RuntimeException e) {
+                    LOGGER.error("User snapshot failed, the log keeps growing until one succeeds", e);
+                } finally {
+                    snapshotRunning.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Apply a write replayed from the journal, keeping the version it was stored with.
+     */
+    private void restore(UserJournal.Entry entry) {
+        users.compute(entry.id(), (key, previous) -> {
+            if (previous != null || entry.user() != null) {
+                apply(key, previous, entry.user());
+            }
+            return entry.user();
+        });
+    }
+
+    /**
+     * Give {@code current} the next version, log the write and apply it to the index and the
+     * aggregates; {@code previous} or {@code current} may be null for an insert or a delete.
+     * Called from inside the store's compute functions, so writes to the same id are applied
+     * and logged in order.
+     */
+    private void onWrite(Long id, User previous, User current) {
+        long version = modificationCount.incrementAndGet();
+        if (current != null) {
+            current.setVersion(version);
+        }
+        if (journal != null) {
+            lastAppended.get()[0] = journal.append(id, version, current);
+        }
+        apply(id, previous, current);
+    }
+
+    /**
+     * Bring the status index and the aggregates in line with replacing {@code previous} by
+     * {@code current} under {@code id}.
+     */
+    private void apply(Long id, User previous, User current) {
+        if (previous == null) {
+            orderedIds.add(id);
+        } else if (current == null) {
+            orderedIds.remove(id);
+        }
+        if (previous != null) {
+            count(previous, -1);
+        }
+        if (current != null) {
+            count(current, 1);
+        }
+        reindex(id, previous, current);
+    }
+
+    private static void checkVersion(Long id, User current, Set<Long> expectedVersions) {
+        if (expectedVersions != null && !expectedVersions.contains(current.getVersion())) {
+            throw new VersionConflictException(id, current.getVersion());
+        }
+    }
+
+    /**
+     * Called once a write's compute has returned: count the write as published, then tell the listeners.
+     */
+    private void notifyWrite(Long id) {
+        publishedCount.incrementAndGet();
+        for (WriteListener listener : writeListeners) {
+            listener.userWritten(id);
+        }
+    }
+
+    private void count(User user, int sign) {
+        totalUsers.add(sign);
+        String status = normalizeStatus(user.getStatus());
+        if ("active".equals(status)) {
+            activeUsers.add(sign);
+        } else if ("inactive".equals(status)) {
+            inactiveUsers.add(sign);
+        }
+        if (user.getAge() != null) {
+            usersWithAge.add(sign);
+            ageSum.add(sign * (long) user.getAge());
+        }
+    }
+
+    private void reindex(Long id, User previous, User current) {
+        String previousStatus = previous != null ? normalizeStatus(previous.getStatus()) : null;
+        String currentStatus = current != null ? normalizeStatus(current.getStatus()) : null;
+        if (Objects.equals(previousStatus, currentStatus)) {
+            return;
+        }
+        if (previousStatus != null) {
+            idsByStatus.computeIfPresent(previousStatus, (status, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+        if (currentStatus != null) {
+            // Added inside compute so a concurrent removal of the emptied set cannot drop the id
+            idsByStatus.compute(currentStatus, (status, ids) -> {
+                IdSet statusIds = ids != null ? ids : users.newIdSet(false);
+                statusIds.add(id);
+                return statusIds;
+            });
+        }
+    }
+
+    private static String normalizeStatus(String status) {
+        return status != null ? status.toLowerCase(Locale.ROOT) : null;
+    }
 }
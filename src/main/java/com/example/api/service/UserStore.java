@@ -0,0 +1,46 @@
+package com.example.api.service;
+
+import com.example.api.model.User;
+
+import java.util.function.BiFunction;
+
+/**
+ * Storage behind {@link UserService}: users by id, with an atomic per-id compute that the
+ * service's write paths build on. Ordering, the status index and aggregates are kept by the
+ * service, in {@link IdSet}s the store chooses, so a store only has to map ids to users.
+ */
+public interface UserStore {
+
+    /**
+     * The user stored under {@code id}, or null.
+     */
+    User get(long id);
+
+    /**
+     * Replace the user under {@code id} with {@code remapping(id, current)}, removing it when the
+     * function returns null. The function runs exactly once per call, and calls for the same id
+     * are serialized, so it may update other state consistently with the store. If it throws,
+     * nothing changes.
+     *
+     * @return the user now stored under {@code id}, or null
+     */
+    User compute(long id, BiFunction<Long, User, User> remapping);
+
+    /**
+     * An empty set for the service's indexes of this store's ids; ascending when {@code ordered}.
+     */
+    default IdSet newIdSet(boolean ordered) {
+        return new BoxedIdSet(ordered);
+    }
+
+    /**
+     * The store selected by the {@code users.store} property: {@code map} or {@code compact}.
+     */
+    static UserStore create(String type) {
+        return switch (type) {
+            case "map" -> new MapUserStore();
+            case "compact" -> new CompactUserStore();
+            default -> throw new IllegalArgumentException("Unknown user store '" + type + "', expected map or compact");
+        };
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.reporting;
+
+/**
+ * Compares the latency distribution of one request name against its baseline with a one-sided
+ * two-sample Kolmogorov-Smirnov test on the histogram CDFs. {@code D+} is the largest amount by
+ * which the baseline CDF lies above the current one, i.e. how much slower the current run is
+ * anywhere in the distribution, and its p-value is approximated by {@code exp(-2 n D+^2)} with
+ * the effective sample size {@code n = n1 n2 / (n1 + n2)}.
+ * <p>
+ * With the sample sizes of a load test even a negligible shift is significant, so a regression
+ * is only reported when the shift is also material: at least one of the compared percentiles
+ * must have grown by the configured minimum relative amount.
+ */
+final class BaselineComparison {
+
+    /** Below this many samples on either side the test is not meaningful. */
+    static final long MIN_SAMPLES = 20;
+
+    final long baselineCount;
+    final long currentCount;
+    final double statistic;
+    final double pValue;
+    /** Percentile with the largest relative increase, and that increase in percent. */
+    final double shiftPercentile;
+    final double shiftPercent;
+    final long baselineValue;
+    final long currentValue;
+    final boolean regression;
+
+    private BaselineComparison(long baselineCount, long currentCount, double statistic, double pValue,
+                               double shiftPercentile, double shiftPercent, long baselineValue, long currentValue,
+                               boolean regression) {
+        this.baselineCount = baselineCount;
+        this.currentCount = currentCount;
+        this.statistic = statistic;
+        this.pValue = pValue;
+        this.shiftPercentile = shiftPercentile;
+        this.shiftPercent = shiftPercent;
+        this.baselineValue = baselineValue;
+        this.currentValue = currentValue;
+        this.regression = regression;
+    }
+
+    /**
+     * @param percentiles      levels whose relative shift measures the effect size
+     * @param alpha            significance level of the test
+     * @param minShiftPercent  smallest percentile increase that counts as a regression
+     */
+    static BaselineComparison compare(LatencyHistogram baseline, LatencyHistogram current, double[] percentiles,
+                                      double alpha, double minShiftPercent) {
+        long n1 = baseline.getTotalCount();
+        long n2 = current.getTotalCount();
+
+        double statistic = 0;
+        if (n1 > 0 && n2 > 0) {
+            long cumulativeBaseline = 0;
+            long cumulativeCurrent = 0;
+            int buckets = Math.max(baseline.bucketCount(), current.bucketCount());
+            for (int i = 0; i < buckets; i++) {
+                cumulativeBaseline += baseline.countAtBucket(i);
+                cumulativeCurrent += current.countAtBucket(i);
+                statistic = Math.max(statistic, cumulativeBaseline / (double) n1 - cumulativeCurrent / (double) n2);
+            }
+        }
+        double effectiveSamples = n1 + n2 == 0 ? 0 : n1 * (double) n2 / (n1 + n2);
+        double pValue = Math.min(1, Math.exp(-2 * effectiveSamples * statistic * statistic));
+
+        double shiftPercentile = percentiles.length > 0 ? percentiles[0] : 50;
+        double shiftPercent = Double.NEGATIVE_INFINITY;
+        long baselineValue = 0;
+        long currentValue = 0;
+        for (double percentile : percentiles) {
+            long before = baseline.valueAtPercentile(percentile);
+            long after = current.valueAtPercentile(percentile);
+            double shift = (after - before) * 100.0 / Math.max(1, before);
+            if (shift > shiftPercent) {
+                shiftPercentile = percentile;
+                shiftPercent = shift;
+                baselineValue = before;
+                currentValue = after;
+            }
+        }
+
+        boolean regression = n1 >= MIN_SAMPLES && n2 >= MIN_SAMPLES
+            && pValue < alpha && shiftPercent >= minShiftPercent;
+        return new BaselineComparison(n1, n2, statistic, pValue, shiftPercentile,
+            Math.max(0, shiftPercent), baselineValue, currentValue, regression);
+    }
+
+    String describe() {
+        return String.format("%s %dms vs baseline %dms (%+.1f%%), KS D+=%.3f p=%.2g (%d vs %d samples)",
+            GatlingJUnitReportGenerator.percentileLabel(shiftPercentile).replace('_', '.'),
+            currentValue, baselineValue, shiftPercent, statistic, pValue, currentCount, baselineCount);
+    }
+}
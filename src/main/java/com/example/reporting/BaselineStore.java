@@ -0,0 +1,95 @@
+package com.example.reporting;
+
+import com.example.reporting.GatlingJUnitReportGenerator.RequestSummary;
+import com.example.reporting.GatlingJUnitReportGenerator.TestResults;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Stores the per-request-name latency histograms of an approved run as the baseline that later
+ * runs of the same simulation are compared against, see {@link BaselineComparison}. Each
+ * simulation has one JSON file, named after the simulation class, holding the non-empty
+ * histogram buckets of every request name.
+ */
+public class BaselineStore {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private final Path baselineDir;
+
+    public BaselineStore(Path baselineDir) {
+        this.baselineDir = baselineDir;
+    }
+
+    record Snapshot(String simulation, long createdAt, Map<String, HistogramSnapshot> requests) {
+    }
+
+    /**
+     * Sparse histogram: bucket index to count.
+     */
+    record HistogramSnapshot(long count, long minValue, long maxValue, Map<Integer, Long> buckets) {
+
+        static HistogramSnapshot of(LatencyHistogram histogram) {
+            Map<Integer, Long> buckets = new LinkedHashMap<>();
+            for (int i = 0; i < histogram.bucketCount(); i++) {
+                long count = histogram.countAtBucket(i);
+                if (count > 0) {
+                    buckets.put(i, count);
+                }
+            }
+            return new HistogramSnapshot(histogram.getTotalCount(), histogram.getMinValue(), histogram.getMaxValue(), buckets);
+        }
+
+        LatencyHistogram toHistogram() {
+            int length = buckets.keySet().stream().mapToInt(Integer::intValue).max().orElse(-1) + 1;
+            long[] counts = new long[length];
+            buckets.forEach((index, count) -> counts[index] = count);
+            return LatencyHistogram.fromBucketCounts(counts, minValue, maxValue);
+        }
+    }
+
+    /**
+     * Baseline histograms of the given simulation by request name, if a baseline was stored.
+     */
+    public Optional<Map<String, LatencyHistogram>> load(String simulationName) throws IOException {
+        Path file = fileFor(simulationName);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        Snapshot snapshot = MAPPER.readValue(file.toFile(), Snapshot.class);
+        Map<String, LatencyHistogram> histograms = new LinkedHashMap<>();
+        snapshot.requests().forEach((name, histogram) -> histograms.put(name, histogram.toHistogram()));
+        return Optional.of(histograms);
+    }
+
+    /**
+     * Make {@code results} the baseline of its simulation, replacing any previous one.
+     */
+    public Path save(TestResults results) throws IOException {
+        Map<String, HistogramSnapshot> requests = new LinkedHashMap<>();
+        for (Map.Entry<String, RequestSummary> entry : results.getRequestSummaries().entrySet()) {
+            requests.put(entry.getKey(), HistogramSnapshot.of(entry.getValue().getHistogram()));
+        }
+        Snapshot snapshot = new Snapshot(results.getSimulationName(),
+            results.getStartTime() != null ? results.getStartTime() : System.currentTimeMillis(), requests);
+
+        Files.createDirectories(baselineDir);
+        Path file = fileFor(results.getSimulationName());
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        MAPPER.writeValue(tempFile.toFile(), snapshot);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return file;
+    }
+
+    private Path fileFor(String simulationName) {
+        return baselineDir.resolve(String.valueOf(simulationName).replaceAll("[^A-Za-z0-9._-]", "_") + ".json");
+    }
+}
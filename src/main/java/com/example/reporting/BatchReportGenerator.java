@@ -0,0 +1,151 @@
+package com.example.reporting;
+
+import com.example.reporting.GatlingJUnitReportGenerator.TestResults;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Generates the configured reports for every Gatling run directory under the results directory,
+ * in parallel. A small index keyed by log path, size and modification time lets later
+ * invocations skip runs whose simulation.log has not changed since it was last reported.
+ */
+public class BatchReportGenerator {
+
+    private static final Logger LOGGER = Logger.getLogger(BatchReportGenerator.class.getName());
+    static final String INDEX_FILE = ".report-index.properties";
+
+    private final GatlingJUnitReportGenerator generator;
+    private final Path gatlingDir;
+    private final Path junitDir;
+
+    public BatchReportGenerator(GatlingJUnitReportGenerator generator, Path gatlingDir, Path junitDir) {
+        this.generator = generator;
+        this.gatlingDir = gatlingDir;
+        this.junitDir = junitDir;
+    }
+
+    /**
+     * Report every run that is new or changed since the last invocation.
+     *
+     * @return true if every run was reported successfully
+     */
+    public boolean run() throws IOException, InterruptedException {
+        if (!Files.isDirectory(gatlingDir)) {
+            throw new IOException("Gatling results directory not found: " + gatlingDir);
+        }
+        Files.createDirectories(junitDir);
+
+        Properties index = loadIndex();
+        List<Path> pending = new ArrayList<>();
+        int skipped = 0;
+        for (Path logFile : findSimulationLogs()) {
+            if (isUpToDate(index, logFile)) {
+                skipped++;
+            } else {
+                pending.add(logFile);
+            }
+        }
+
+        int threads = Math.max(1, Math.min(pending.size(), Runtime.getRuntime().availableProcessors()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        Map<Path, Future<String>> futures = new LinkedHashMap<>();
+        try {
+            for (Path logFile : pending) {
+                futures.put(logFile, executor.submit(() -> report(logFile)));
+            }
+
+            int failed = 0;
+            for (Map.Entry<Path, Future<String>> entry : futures.entrySet()) {
+                Path logFile = entry.getKey();
+                try {
+                    String fingerprint = entry.getValue().get();
+                    index.setProperty(indexKey(logFile), fingerprint);
+                } catch (ExecutionException e) {
+                    failed++;
+                    LOGGER.log(Level.SEVERE, "Failed to generate reports for " + logFile, e.getCause());
+                }
+            }
+
+            storeIndex(index);
+            System.out.println("Batch reports: " + (futures.size() - failed) + " generated, "
+                + skipped + " up to date, " + failed + " failed");
+            return failed == 0;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private String report(Path logFile) throws Exception {
+        // Fingerprint before parsing, so a log that grows while we read it is picked up next time
+        String fingerprint = fingerprint(logFile);
+        TestResults results = generator.parseGatlingLog(logFile);
+        generator.writeReports(results, outputFileFor(logFile));
+        return fingerprint;
+    }
+
+    private List<Path> findSimulationLogs() throws IOException {
+        try (Stream<Path> stream = Files.list(gatlingDir)) {
+            return stream
+                .filter(Files::isDirectory)
+                .map(dir -> dir.resolve("simulation.log"))
+                .filter(Files::isRegularFile)
+                .sorted()
+                .toList();
+        }
+    }
+
+    private boolean isUpToDate(Properties index, Path logFile) throws IOException {
+        return fingerprint(logFile).equals(index.getProperty(indexKey(logFile)))
+            && generator.reportFiles(outputFileFor(logFile)).stream().allMatch(Files::exists);
+    }
+
+    Path outputFileFor(Path logFile) {
+        return junitDir.resolve("TEST-" + logFile.getParent().getFileName() + ".xml");
+    }
+
+    private static String indexKey(Path logFile) {
+        return logFile.toAbsolutePath().normalize().toString();
+    }
+
+    private static String fingerprint(Path logFile) throws IOException {
+        return Files.size(logFile) + ":" + Files.getLastModifiedTime(logFile).toMillis();
+    }
+
+    private Properties loadIndex() throws IOException {
+        Properties index = new Properties();
+        Path indexFile = junitDir.resolve(INDEX_FILE);
+        if (Files.exists(indexFile)) {
+            try (Reader reader = Files.newBufferedReader(indexFile, StandardCharsets.UTF_8)) {
+                index.load(reader);
+            }
+        }
+        return index;
+    }
+
+    private void storeIndex(Properties index) throws IOException {
+        Path indexFile = junitDir.resolve(INDEX_FILE);
+        Path tempFile = junitDir.resolve(INDEX_FILE + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            index.store(writer, "simulation.log path = size:lastModifiedMillis of the last reported version");
+        }
+        Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.reporting;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Concurrency per time window, derived from a run's {@link WindowedMetrics}: active virtual users
+ * (from USER start/end records), the average number of requests in flight (request busy time over
+ * the window width) and the number Little's law predicts from throughput and mean response time
+ * ({@code L = λW}). The two in-flight figures agree while the system is in equilibrium; windows
+ * where they diverge are flagged, since queues were building or draining there.
+ * <p>
+ * A window is marked saturated when it runs more active users than an earlier, more efficient
+ * window, yet delivers clearly less throughput per user at a clearly higher latency: adding load
+ * added queueing instead of throughput. The lowest user count at which that happens is reported
+ * as the saturation knee. Runs without USER records get no knee: requests in flight are not load
+ * but its outcome, and by Little's law throughput per request in flight is just the inverse of
+ * the mean latency, so the test would flag any latency rise on steady load.
+ */
+final class ConcurrencyTimeline {
+
+    /** Relative difference between measured and predicted in-flight requests still considered consistent. */
+    private static final double LITTLES_LAW_TOLERANCE = 0.2;
+    /** Absolute slack for lightly loaded windows, where a single request straddling a boundary dominates. */
+    private static final double LITTLES_LAW_SLACK = 0.5;
+    /** Throughput per unit of concurrency below this fraction of the best seen so far counts as not scaling. */
+    private static final double SATURATION_EFFICIENCY = 0.8;
+    /** Mean latency growth over the most efficient window that must accompany the efficiency drop. */
+    private static final double SATURATION_LATENCY_GROWTH = 1.2;
+
+    record Row(long startMillis, long activeUsers, long usersAtEnd, double inFlight, double littlesLawInFlight,
+               double requestsPerSecond, double meanResponseTimeMs, boolean littlesLawConsistent, boolean saturated) {
+    }
+
+    final List<Row> rows;
+    final boolean hasUserRecords;
+    final long maxActiveUsers;
+    final double maxInFlight;
+    final int littlesLawInconsistentWindows;
+    /** First window at the saturation knee, or null when throughput kept scaling or there were no USER records. */
+    final Row knee;
+    /** Best throughput reached below the knee concurrency. */
+    final double kneeRequestsPerSecond;
+    private final Map<Long, Row> rowsByStart = new HashMap<>();
+
+    private ConcurrencyTimeline(List<Row> rows, boolean hasUserRecords, Row knee, double kneeRequestsPerSecond) {
+        this.rows = rows;
+        this.hasUserRecords = hasUserRecords;
+        this.knee = knee;
+        this.kneeRequestsPerSecond = kneeRequestsPerSecond;
+        long users = 0;
+        double inFlight = 0;
+        int inconsistent = 0;
+        for (Row row : rows) {
+            rowsByStart.put(row.startMillis, row);
+            users = Math.max(users, row.activeUsers);
+            inFlight = Math.max(inFlight, row.inFlight);
+            if (!row.littlesLawConsistent) {
+                inconsistent++;
+            }
+        }
+        this.maxActiveUsers = users;
+        this.maxInFlight = inFlight;
+        this.littlesLawInconsistentWindows = inconsistent;
+    }
+
+    static ConcurrencyTimeline analyze(WindowedMetrics timeline) {
+        double windowMillis = timeline.getWindowMillis();
+        List<WindowedMetrics.Window> windows = timeline.windows();
+
+        boolean hasUserRecords = false;
+        long usersAtStart = 0;
+        List<Row> rows = new ArrayList<>(windows.size());
+        for (WindowedMetrics.Window window : windows) {
+            hasUserRecords |= window.userStarts > 0;
+            // Same definition as Gatling's active users chart: active when the window opened, plus those started in it
+            long activeUsers = usersAtStart + window.userStarts;
+            usersAtStart = Math.max(0, activeUsers - window.userEnds);
+            double inFlight = window.busyMillis / windowMillis;
+            double predicted = window.totalTimeMs / windowMillis;
+            boolean consistent = Math.abs(inFlight - predicted)
+                <= Math.max(LITTLES_LAW_SLACK, LITTLES_LAW_TOLERANCE * Math.max(inFlight, predicted));
+            rows.add(new Row(window.startMillis, activeUsers, usersAtStart, inFlight, predicted,
+                window.count * 1000.0 / windowMillis, window.averageMillis(), consistent, false));
+        }
+
+        if (!hasUserRecords) {
+            return new ConcurrencyTimeline(rows, false, null, 0);
+        }
+        List<Row> byUsers = rows.stream()
+            .filter(row -> row.requestsPerSecond > 0 && row.activeUsers > 0)
+            .sorted(Comparator.comparingLong(Row::activeUsers).thenComparingLong(Row::startMillis))
+            .toList();
+
+        Map<Long, Row> saturated = new HashMap<>();
+        Row best = null;
+        Row knee = null;
+        double kneeRequestsPerSecond = 0;
+        double bestRequestsPerSecond = 0;
+        for (Row row : byUsers) {
+            if (best != null && row.activeUsers > best.activeUsers
+                && efficiency(row) < SATURATION_EFFICIENCY * efficiency(best)
+                && row.meanResponseTimeMs > SATURATION_LATENCY_GROWTH * best.meanResponseTimeMs) {
+                saturated.put(row.startMillis, row);
+                if (knee == null) {
+                    knee = row;
+                    kneeRequestsPerSecond = bestRequestsPerSecond;
+                }
+            }
+            if (best == null || efficiency(row) > efficiency(best)) {
+                best = row;
+            }
+            bestRequestsPerSecond = Math.max(bestRequestsPerSecond, row.requestsPerSecond);
+        }
+
+        if (!saturated.isEmpty()) {
+            rows.replaceAll(row -> saturated.containsKey(row.startMillis)
+                ? new Row(row.startMillis, row.activeUsers, row.usersAtEnd, row.inFlight, row.littlesLawInFlight,
+                    row.requestsPerSecond, row.meanResponseTimeMs, row.littlesLawConsistent, true)
+                : row);
+        }
+        return new ConcurrencyTimeline(rows, hasUserRecords, knee, kneeRequestsPerSecond);
+    }
+
+    /**
+     * Active users at the saturation knee.
+     */
+    double kneeConcurrency() {
+        return knee == null ? 0 : knee.activeUsers;
+    }
+
+    private static double efficiency(Row row) {
+        return row.requestsPerSecond / row.activeUsers;
+    }
+
+    /**
+     * The row for the window starting at {@code startMillis}, or null if nothing happened in it.
+     */
+    Row rowAt(long startMillis) {
+        return rowsByStart.get(startMillis);
+    }
+}
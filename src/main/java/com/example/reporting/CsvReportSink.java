@@ -0,0 +1,72 @@
+package com.example.reporting;
+
+import com.example.reporting.GatlingJUnitReportGenerator.RequestSummary;
+import com.example.reporting.GatlingJUnitReportGenerator.TestResults;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.example.reporting.GatlingJUnitReportGenerator.percentileLabel;
+
+/**
+ * Writes one CSV row of aggregates per request name.
+ */
+public class CsvReportSink implements ReportSink {
+
+    private final double[] percentiles;
+
+    public CsvReportSink(double[] percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    @Override
+    public String fileSuffix() {
+        return ".csv";
+    }
+
+    @Override
+    public void write(TestResults results, Writer out) throws IOException {
+        boolean corrected = GatlingJUnitReportGenerator.EXPECTED_INTERVAL_MILLIS > 0;
+        StringBuilder header = new StringBuilder(
+            "request,count,failures,success_rate_percent,min_response_time_ms,max_response_time_ms,mean_response_time_ms");
+        for (double percentile : percentiles) {
+            header.append(',').append(percentileLabel(percentile)).append("_response_time_ms");
+        }
+        if (corrected) {
+            for (double percentile : percentiles) {
+                header.append(',').append(percentileLabel(percentile)).append("_corrected_response_time_ms");
+            }
+        }
+        out.write(header.append('\n').toString());
+
+        for (Map.Entry<String, RequestSummary> entry : results.getRequestSummaries().entrySet()) {
+            RequestSummary summary = entry.getValue();
+            StringBuilder row = new StringBuilder()
+                .append(quote(entry.getKey())).append(',')
+                .append(summary.getCount()).append(',')
+                .append(summary.getFailures()).append(',')
+                .append(String.format(Locale.ROOT, "%.2f", summary.successRate())).append(',')
+                .append(summary.getMinTimeMs()).append(',')
+                .append(summary.getMaxTimeMs()).append(',')
+                .append(String.format(Locale.ROOT, "%.2f", summary.averageMillis()));
+            for (double percentile : percentiles) {
+                row.append(',').append(summary.getHistogram().valueAtPercentile(percentile));
+            }
+            if (corrected) {
+                for (double percentile : percentiles) {
+                    row.append(',').append(summary.getCorrectedHistogram().valueAtPercentile(percentile));
+                }
+            }
+            out.write(row.append('\n').toString());
+        }
+    }
+
+    private static String quote(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -1,24 +1,24 @@
 package com.example.reporting;
 
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import java.util.logging.Logger;
 import java.util.logging.Level;
@@ -31,17 +31,88 @@ import java.util.logging.Level;
 public class GatlingJUnitReportGenerator {
 
     private static final Logger LOGGER = Logger.getLogger(GatlingJUnitReportGenerator.class.getName());
-    private static final String GATLING_DIR = "build/reports/gatling";
-    private static final String JUNIT_DIR = "build/gatling/junit";
-    private static final String SIMULATION_NAME_PREFIX = "javaapitestsimulation"; // <-- TODO: CHANGE THIS FOR YOUR PROJECT
+    static final String GATLING_DIR = "build/reports/gatling";
+    static final String JUNIT_DIR = "build/gatling/junit";
+    private static final String SIMULATION_NAME_PREFIX =
+        System.getProperty("gatling.report.simulationPrefix", "javaapitestsimulation");
     private static final String OUTPUT_FILE = "TEST-" + SIMULATION_NAME_PREFIX + ".xml";
+    private static final String SINKS = System.getProperty("gatling.report.sinks", "junit");
+    private static final String GATLING_CONF = "src/test/resources/gatling.conf";
+    private static final String SLO_FILE = System.getProperty("gatling.report.sloFile", "src/test/resources/gatling-slo.json");
+    private static final Pattern PERCENTILE_SETTING = Pattern.compile("^\\s*percentile[1-4]\\s*=\\s*([0-9.]+)");
+    private static final double[] DEFAULT_PERCENTILES = {50, 75, 95, 99};
+    private static final double EXTRA_TAIL_PERCENTILE = 99.9;
+    private static final long PARALLEL_THRESHOLD_BYTES = 64L * 1024 * 1024;
+    private static final boolean PARALLEL_PARSING =
+        Boolean.parseBoolean(System.getProperty("gatling.report.parallel", "true"));
+    static final long WINDOW_MILLIS = Long.getLong("gatling.report.windowSeconds", 1) * 1000;
+    private static final boolean EXCLUDE_WARMUP = Boolean.getBoolean("gatling.report.excludeWarmup");
+    private static final boolean WRITE_ARCHIVE = Boolean.getBoolean("gatling.report.archive");
+    static final long EXPECTED_INTERVAL_MILLIS = expectedIntervalMillis();
+    private static final String BASELINE_DIR =
+        System.getProperty("gatling.report.baselineDir", "src/test/resources/gatling-baseline");
+    private static final boolean UPDATE_BASELINE = Boolean.getBoolean("gatling.report.updateBaseline");
+    private static final double BASELINE_ALPHA =
+        Double.parseDouble(System.getProperty("gatling.report.baseline.alpha", "0.01"));
+    private static final double BASELINE_MIN_SHIFT_PERCENT =
+        Double.parseDouble(System.getProperty("gatling.report.baseline.minShiftPercent", "10"));
+    /** Percentiles above this are too noisy to measure a regression's effect size. */
+    private static final double BASELINE_MAX_PERCENTILE = 99;
+    private static final boolean RECORD_TRENDS = Boolean.getBoolean("gatling.report.trends");
+    private static final String TREND_DIR = System.getProperty("gatling.report.trendDir", ".gatling-trends");
+    /** Previous runs whose median the JUnit trend delta compares against. */
+    private static final int TREND_WINDOW = Integer.getInteger("gatling.report.trend.window", 10);
+    private static final double[] TREND_PERCENTILES = {95, 99};
+
+    private final double[] percentiles;
+    private final List<ReportSink> sinks;
+    private final BaselineStore baselineStore = new BaselineStore(Paths.get(BASELINE_DIR));
+    private final TrendStore trendStore = new TrendStore(Paths.get(TREND_DIR));
+    private final ServiceLevelObjectives objectives;
+
+    public GatlingJUnitReportGenerator() {
+        this(SINKS);
+    }
+
+    GatlingJUnitReportGenerator(String sinkNames) {
+        this.percentiles = loadPercentileLevels(Paths.get(GATLING_CONF));
+        this.sinks = createSinks(sinkNames);
+        try {
+            this.objectives = ServiceLevelObjectives.load(Paths.get(SLO_FILE));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read service level objectives from " + SLO_FILE, e);
+        }
+    }
 
     public static void main(String[] args) {
         try {
             GatlingJUnitReportGenerator generator = new GatlingJUnitReportGenerator();
-            TestResults results = generator.parseGatlingLog();
-            generator.createJUnitXml(results);
+            if (args.length > 0 && "--follow".equals(args[0])) {
+                // Exit non-zero as soon as a threshold is breached so CI can stop the run
+                LiveReportFollower.fromSystemProperties(Paths.get(GATLING_DIR), () -> System.exit(2)).follow();
+                return;
+            }
+            if (args.length > 0 && "--batch".equals(args[0])) {
+                BatchReportGenerator batch = new BatchReportGenerator(generator, Paths.get(GATLING_DIR), Paths.get(JUNIT_DIR));
+                if (!batch.run()) {
+                    System.exit(1);
+                }
+                return;
+            }
+            if (args.length > 0 && "--trend".equals(args[0])) {
+                generator.printTrends(System.getProperty("gatling.report.trend.simulation"),
+                    System.getProperty("gatling.report.trend.request"), Integer.getInteger("gatling.report.trend.last", 20));
+                return;
+            }
+
+            TestResults results = args.length > 1 && "--from-archive".equals(args[0])
+                ? SimulationLogArchive.read(Paths.get(args[1]))
+                : generator.parseGatlingLog();
+            generator.writeReports(results);
             generator.printSummary(results);
+            if (UPDATE_BASELINE) {
+                System.out.println("Baseline updated: " + generator.baselineStore.save(results));
+            }
         } catch (Exception e) {
             LOGGER.log(Level.SEVERE, "Error generating JUnit XML report: " + e.getMessage(), e);
             System.exit(1);
@@ -49,182 +120,327 @@ public class GatlingJUnitReportGenerator {
     }
 
     /**
-     * Parse Gatling simulation.log file and extract test results
+     * Parse the latest Gatling simulation.log file and extract test results
      */
     public TestResults parseGatlingLog() throws IOException {
-        Path logFile = findLatestSimulationLog();
+        return parseGatlingLog(findLatestSimulationLog());
+    }
+
+    /**
+     * Parse a Gatling simulation.log file, folding each REQUEST line into its per-request-name
+     * summary as it is read. No per-request objects are retained, so memory stays flat
+     * regardless of log size. Large logs are split across cores, see {@link #parseGatlingLogParallel(Path)}.
+     */
+    public TestResults parseGatlingLog(Path logFile) throws IOException {
+        if (WRITE_ARCHIVE) {
+            return parseAndArchive(logFile);
+        }
+        if (PARALLEL_PARSING && Files.size(logFile) >= PARALLEL_THRESHOLD_BYTES) {
+            return parseGatlingLogParallel(logFile);
+        }
+
+        TestResults results;
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            results = SimulationLogTokenizer.parseRange(channel, 0, channel.size());
+        }
+
+        results.finish();
+        return results;
+    }
+
+    /**
+     * Parse a Gatling simulation.log file sequentially while writing every request and user
+     * record to a compact binary archive next to it, see {@link SimulationLogArchive}. The archive
+     * is written to a temporary file and only moved into place once the whole log has parsed, so
+     * a failed parse leaves any previous archive as it was.
+     */
+    public TestResults parseAndArchive(Path logFile) throws IOException {
+        Path archiveFile = logFile.resolveSibling(SimulationLogArchive.FILE_NAME);
+        Path tempFile = archiveFile.resolveSibling(archiveFile.getFileName() + ".tmp");
         TestResults results = new TestResults();
+        try {
+            try (SimulationLogArchive.Writer archive = new SimulationLogArchive.Writer(tempFile);
+                 FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+                results.requestListener = archive;
+                SimulationLogTokenizer.parseRange(channel, 0, channel.size(), results);
+                archive.setRun(results.simulationName, results.startTime);
+            } finally {
+                results.requestListener = null;
+            }
+            Files.move(tempFile, archiveFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
 
-        try (BufferedReader reader = Files.newBufferedReader(logFile)) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split("\t");
-                if (parts.length < 3) continue;
-
-                String recordType = parts[0];
-
-                if ("RUN".equals(recordType)) {
-                    // RUN	simulations.JavaApiTestSimulation	javaapitestsimulation	1758575836567	Performance Test Execution	3.11.5
-                    if (parts.length >= 4) {
-                        results.simulationName = parts[1];
-                        results.startTime = Long.parseLong(parts[3]);
-                    }
-                } else if ("REQUEST".equals(recordType)) {
-                    // REQUEST		Health Check	1758575837624	1758575837633	OK
-                    if (parts.length >= 6) {
-                        String requestName = parts[2];
-                        long startTime = Long.parseLong(parts[3]);
-                        long endTime = Long.parseLong(parts[4]);
-                        String status = parts[5];
-
-                        TestCase testCase = new TestCase();
-                        testCase.name = requestName;
-                        testCase.classname = results.simulationName;
-                        testCase.time = (endTime - startTime) / 1000.0; // Convert to seconds
-                        testCase.status = status;
-                        testCase.timestamp = startTime;
-
-                        results.totalRequests++;
-                        if ("OK".equals(status)) {
-                            results.successfulRequests++;
-                        } else {
-                            results.failedRequests++;
-                            testCase.failure = "Request failed with status: " + status;
-                        }
-
-                        results.testCases.add(testCase);
-
-                        // Update end time
-                        if (results.endTime == null || endTime > results.endTime) {
-                            results.endTime = endTime;
-                        }
-                    }
-                }
+        results.finish();
+        return results;
+    }
+
+    /**
+     * Parse a Gatling simulation.log file on the common fork-join pool. The file is split into
+     * newline-aligned byte ranges that are parsed into partial results and merged in file order,
+     * so the outcome is identical to the sequential path.
+     */
+    public TestResults parseGatlingLogParallel(Path logFile) throws IOException {
+        TestResults results = new ParallelLogParser(ForkJoinPool.commonPool()).parse(logFile);
+        results.finish();
+        return results;
+    }
+
+    /**
+     * Write parsed results to every configured sink under the JUnit results directory
+     */
+    public void writeReports(TestResults results) throws Exception {
+        writeReports(results, Paths.get(JUNIT_DIR, OUTPUT_FILE));
+    }
+
+    /**
+     * Write parsed results to every configured sink. Each sink writes a sibling of
+     * {@code outputFile} named after it with the sink's suffix in place of ".xml". The run is
+     * then added to the trend store, unless {@code gatling.report.trends} is false.
+     */
+    public void writeReports(TestResults results, Path outputFile) throws Exception {
+        // Create output directory
+        Files.createDirectories(outputFile.toAbsolutePath().getParent());
+
+        List<Path> reportFiles = reportFiles(outputFile);
+        for (int i = 0; i < sinks.size(); i++) {
+            try (Writer out = Files.newBufferedWriter(reportFiles.get(i), StandardCharsets.UTF_8)) {
+                sinks.get(i).write(results, out);
             }
         }
+        if (RECORD_TRENDS) {
+            trendStore.append(results);
+        }
+    }
+
+    /**
+     * The files {@link #writeReports(TestResults, Path)} writes for {@code outputFile}, in sink order.
+     */
+    public List<Path> reportFiles(Path outputFile) {
+        String baseName = outputFile.getFileName().toString().replaceFirst("\\.xml$", "");
+        return sinks.stream().map(sink -> outputFile.resolveSibling(baseName + sink.fileSuffix())).toList();
+    }
 
-        if (results.startTime != null && results.endTime != null) {
-            results.duration = (results.endTime - results.startTime) / 1000.0;
+    /**
+     * Resolve the comma-separated sink names of {@code gatling.report.sinks}, see {@link ReportSink}.
+     */
+    private List<ReportSink> createSinks(String names) {
+        List<ReportSink> result = new ArrayList<>();
+        for (String name : names.split(",")) {
+            switch (name.trim()) {
+                case "" -> { }
+                case "junit" -> result.add(new MethodSink(".xml", this::writeJUnitXml));
+                case "windows" -> result.add(new MethodSink(".windows.csv", this::writeTimelineCsv));
+                case "json" -> result.add(new JsonReportSink(percentiles));
+                case "csv" -> result.add(new CsvReportSink(percentiles));
+                case "prometheus" -> result.add(new PrometheusReportSink(percentiles));
+                default -> result.add(loadSink(name.trim()));
+            }
         }
+        if (result.isEmpty()) {
+            throw new IllegalArgumentException("gatling.report.sinks names no report sink");
+        }
+        return result;
+    }
 
-        return results;
+    private ReportSink loadSink(String className) {
+        try {
+            Class<? extends ReportSink> type = Class.forName(className).asSubclass(ReportSink.class);
+            try {
+                return type.getConstructor(double[].class).newInstance((Object) percentiles.clone());
+            } catch (NoSuchMethodException e) {
+                return type.getConstructor().newInstance();
+            }
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Unknown report sink: " + className, e);
+        }
     }
 
     /**
-     * Create JUnit XML from parsed results
+     * Adapts the XML and timeline writers of this class to {@link ReportSink}.
      */
-    public void createJUnitXml(TestResults results) throws Exception {
-        DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
-        Document doc = docBuilder.newDocument();
+    private record MethodSink(String fileSuffix, Body body) implements ReportSink {
 
-        // Create root testsuite element
-        Element testsuite = doc.createElement("testsuite");
-        doc.appendChild(testsuite);
+        interface Body {
+            void write(TestResults results, Writer out) throws Exception;
+        }
+
+        @Override
+        public void write(TestResults results, Writer out) throws Exception {
+            body.write(results, out);
+        }
+    }
+
+    /**
+     * Stream the JUnit XML document to {@code out}, one testcase at a time. Suite-level counts are
+     * derived from the aggregates up front, so nothing is buffered. The layout (attribute order,
+     * two-space indent) matches what the former DOM + Transformer pipeline produced.
+     */
+    public void writeJUnitXml(TestResults results, Writer out) throws XMLStreamException, IOException {
+        // XMLStreamWriter cannot emit standalone="no", so the declaration is written directly
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+        XMLStreamWriter xml = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+
+        // Every request name produces one performance test case and one test case per objective,
+        // plus a regression test case when the simulation has a baseline
+        Map<String, List<ServiceLevelObjectives.Outcome>> requestOutcomes = new HashMap<>();
+        for (Map.Entry<String, RequestSummary> entry : results.requestSummaries.entrySet()) {
+            requestOutcomes.put(entry.getKey(), objectives.evaluateRequest(results.simulationName, entry.getKey(),
+                requestSubject(results, entry.getKey(), entry.getValue())));
+        }
+        List<ServiceLevelObjectives.Outcome> runOutcomes = objectives.evaluateRun(results.simulationName, runSubject(results));
+        Map<String, BaselineComparison> comparisons = compareWithBaseline(results);
+
+        long testCount = results.requestSummaries.size() + runOutcomes.size() + comparisons.size();
+        long failureCount = runOutcomes.stream().filter(ServiceLevelObjectives.Outcome::failed).count();
+        for (List<ServiceLevelObjectives.Outcome> outcomes : requestOutcomes.values()) {
+            testCount += outcomes.size();
+            failureCount += outcomes.stream().filter(ServiceLevelObjectives.Outcome::failed).count();
+        }
+        for (BaselineComparison comparison : comparisons.values()) {
+            if (comparison.regression) failureCount++;
+        }
+        Map<String, List<TrendStore.Entry>> trends = previousRuns(results);
 
-        testsuite.setAttribute("name", results.simulationName);
-        testsuite.setAttribute("errors", "0");
-        testsuite.setAttribute("skipped", "0");
-        testsuite.setAttribute("time", String.format("%.3f", results.duration));
+        // Create root testsuite element
+        xml.writeStartElement("testsuite");
+        xml.writeAttribute("errors", "0");
+        xml.writeAttribute("failures", String.valueOf(failureCount));
+        xml.writeAttribute("hostname", "localhost");
+        xml.writeAttribute("name", String.valueOf(results.simulationName));
+        xml.writeAttribute("package", "simulations");
+        xml.writeAttribute("skipped", "0");
+        xml.writeAttribute("tests", String.valueOf(testCount));
+        xml.writeAttribute("time", String.format(Locale.ROOT, "%.3f", results.duration));
 
         if (results.startTime != null) {
             LocalDateTime dateTime = LocalDateTime.ofInstant(
                 Instant.ofEpochMilli(results.startTime), ZoneId.systemDefault());
-            testsuite.setAttribute("timestamp", dateTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            xml.writeAttribute("timestamp", dateTime.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
         }
-        testsuite.setAttribute("hostname", "localhost");
-        testsuite.setAttribute("package", "simulations");
 
-        // Group test cases by request name
-        Map<String, RequestSummary> requestSummaries = groupTestCases(results.testCases);
-
-        // Create test case elements
-        List<Element> testCaseElements = new ArrayList<>();
-        for (Map.Entry<String, RequestSummary> entry : requestSummaries.entrySet()) {
+        for (Map.Entry<String, RequestSummary> entry : results.requestSummaries.entrySet()) {
             String name = entry.getKey();
             RequestSummary summary = entry.getValue();
+            List<ServiceLevelObjectives.Outcome> outcomes = requestOutcomes.get(name);
 
             // Main performance test case
-            Element testcase = createPerformanceTestCase(doc, results.simulationName, name, summary);
-            testCaseElements.add(testcase);
+            writePerformanceTestCase(xml, results, name, summary, outcomes, trends.getOrDefault(name, List.of()));
 
-            // Response time assertion test case
-            Element responseTimeTest = createResponseTimeAssertionTestCase(doc, results.simulationName, name, summary);
-            testCaseElements.add(responseTimeTest);
+            // One assertion test case per objective
+            for (ServiceLevelObjectives.Outcome outcome : outcomes) {
+                writeAssertionTestCase(xml, results.simulationName, outcome.testName(), outcome.failureMessage());
+            }
 
-            // Success rate assertion test case
-            Element successRateTest = createSuccessRateAssertionTestCase(doc, results.simulationName, name, summary);
-            testCaseElements.add(successRateTest);
+            // Latency regression against the baseline
+            BaselineComparison comparison = comparisons.get(name);
+            if (comparison != null) {
+                writeAssertionTestCase(xml, results.simulationName, name + "_No_Latency_Regression_vs_Baseline",
+                    comparison.regression ? "Latency regression: " + comparison.describe() : null);
+            }
         }
 
-        // Add all test cases to testsuite
-        for (Element testCase : testCaseElements) {
-            testsuite.appendChild(testCase);
+        for (ServiceLevelObjectives.Outcome outcome : runOutcomes) {
+            writeAssertionTestCase(xml, results.simulationName, outcome.testName(), outcome.failureMessage());
         }
 
-        // Update test counts
-        testsuite.setAttribute("tests", String.valueOf(testCaseElements.size()));
-
-        long failureCount = testCaseElements.stream()
-            .mapToLong(tc -> tc.getElementsByTagName("failure").getLength())
-            .sum();
-        testsuite.setAttribute("failures", String.valueOf(failureCount));
-
         // Add testsuite-level properties
-        Element suiteProperties = doc.createElement("properties");
-        testsuite.appendChild(suiteProperties);
-
-        addProperty(doc, suiteProperties, "total_requests", String.valueOf(results.totalRequests));
-        addProperty(doc, suiteProperties, "test_duration_seconds", String.format("%.3f", results.duration));
-        addProperty(doc, suiteProperties, "requests_per_second",
-            results.duration > 0 ? String.format("%.2f", results.totalRequests / results.duration) : "0");
+        indent(xml, 1);
+        xml.writeStartElement("properties");
+        writeProperty(xml, 2, "total_requests", String.valueOf(results.totalRequests));
+        writeProperty(xml, 2, "test_duration_seconds", String.format(Locale.ROOT, "%.3f", results.duration));
+        writeProperty(xml, 2, "requests_per_second",
+            results.duration > 0 ? String.format(Locale.ROOT, "%.2f", results.totalRequests / results.duration) : "0");
+        if (EXPECTED_INTERVAL_MILLIS > 0) {
+            writeProperty(xml, 2, "expected_interval_ms", String.valueOf(EXPECTED_INTERVAL_MILLIS));
+        }
+        writeSteadyStateProperties(xml, results);
+        writeConcurrencyProperties(xml, results.concurrency);
+        indent(xml, 1);
+        xml.writeEndElement();
 
-        // Write XML to file
-        writeXmlToFile(doc);
+        indent(xml, 0);
+        xml.writeEndElement();
+        xml.writeEndDocument();
+        xml.flush();
+        out.write("\n");
     }
 
-    private Map<String, RequestSummary> groupTestCases(List<TestCase> testCases) {
-        Map<String, RequestSummary> summaries = new HashMap<>();
-
-        for (TestCase testCase : testCases) {
-            RequestSummary summary = summaries.computeIfAbsent(testCase.name, k -> new RequestSummary());
+    private void writePerformanceTestCase(XMLStreamWriter xml, TestResults results, String name, RequestSummary summary,
+                                          List<ServiceLevelObjectives.Outcome> outcomes, List<TrendStore.Entry> previousRuns)
+            throws XMLStreamException {
+        indent(xml, 1);
+        xml.writeStartElement("testcase");
+        xml.writeAttribute("classname", results.simulationName);
+        xml.writeAttribute("name", name + "_Performance_Test");
+        xml.writeAttribute("time", String.format(Locale.ROOT, "%.3f", summary.averageMillis() / 1000.0));
 
-            summary.count++;
-            summary.totalTime += testCase.time;
-            summary.times.add(testCase.time);
-            summary.minTime = Math.min(summary.minTime, testCase.time);
-            summary.maxTime = Math.max(summary.maxTime, testCase.time);
+        // Add properties
+        indent(xml, 2);
+        xml.writeStartElement("properties");
 
-            if (!"OK".equals(testCase.status)) {
-                summary.failures++;
-                summary.status = "FAILED";
+        writeProperty(xml, 3, "request_count", String.valueOf(summary.count));
+        writeProperty(xml, 3, "min_response_time_ms", String.valueOf(summary.minTimeMs));
+        writeProperty(xml, 3, "max_response_time_ms", String.valueOf(summary.maxTimeMs));
+        writeProperty(xml, 3, "avg_response_time_ms", String.valueOf((long) summary.averageMillis()));
+        for (double percentile : percentiles) {
+            writeProperty(xml, 3, percentileLabel(percentile) + "_response_time_ms",
+                String.valueOf(summary.histogram.valueAtPercentile(percentile)));
+        }
+        if (summary.correctedHistogram != null) {
+            for (double percentile : percentiles) {
+                writeProperty(xml, 3, percentileLabel(percentile) + "_corrected_response_time_ms",
+                    String.valueOf(summary.correctedHistogram.valueAtPercentile(percentile)));
             }
         }
 
-        return summaries;
-    }
-
-    private Element createPerformanceTestCase(Document doc, String simulationName, String name, RequestSummary summary) {
-        Element testcase = doc.createElement("testcase");
-        testcase.setAttribute("classname", simulationName);
-        testcase.setAttribute("name", name + "_Performance_Test");
-        testcase.setAttribute("time", String.format("%.3f", summary.totalTime / summary.count));
+        double successRate = summary.successRate();
+        writeProperty(xml, 3, "success_rate_percent", String.format(Locale.ROOT, "%.1f", successRate));
 
-        // Add properties
-        Element properties = doc.createElement("properties");
-        testcase.appendChild(properties);
+        if (results.steadyStateStart != Long.MIN_VALUE) {
+            WindowedMetrics.Window steady = summary.windows.totalFrom(results.steadyStateStart);
+            writeProperty(xml, 3, "steady_state_request_count", String.valueOf(steady.count));
+            if (steady.count > 0) {
+                writeProperty(xml, 3, "steady_state_avg_response_time_ms", String.valueOf((long) steady.averageMillis()));
+                writeProperty(xml, 3, "steady_state_max_response_time_ms", String.valueOf(steady.maxTimeMs));
+                writeProperty(xml, 3, "steady_state_success_rate_percent",
+                    String.format(Locale.ROOT, "%.1f", ((steady.count - steady.failures) / (double) steady.count) * 100));
+            }
+        }
 
-        addProperty(doc, properties, "request_count", String.valueOf(summary.count));
-        addProperty(doc, properties, "min_response_time_ms", String.valueOf((int)(summary.minTime * 1000)));
-        addProperty(doc, properties, "max_response_time_ms", String.valueOf((int)(summary.maxTime * 1000)));
-        addProperty(doc, properties, "avg_response_time_ms", String.valueOf((int)((summary.totalTime / summary.count) * 1000)));
+        StringBuilder trendLine = new StringBuilder();
+        if (!previousRuns.isEmpty()) {
+            writeProperty(xml, 3, "trend_previous_runs", String.valueOf(previousRuns.size()));
+            trendLine.append("\nTrend vs median of last ").append(previousRuns.size()).append(" runs:");
+            for (double percentile : TREND_PERCENTILES) {
+                long median = medianOf(previousRuns, percentile);
+                long current = summary.histogram.valueAtPercentile(percentile);
+                double delta = (current - median) * 100.0 / Math.max(1, median);
+                writeProperty(xml, 3, "trend_" + percentileLabel(percentile) + "_median_ms", String.valueOf(median));
+                writeProperty(xml, 3, "trend_" + percentileLabel(percentile) + "_delta_percent", String.format(Locale.ROOT, "%+.1f", delta));
+                trendLine.append(String.format(Locale.ROOT, " %s %dms (%+.1f%%)", percentileLabel(percentile), median, delta));
+            }
+        }
 
-        double successRate = ((summary.count - summary.failures) / (double) summary.count) * 100;
-        addProperty(doc, properties, "success_rate_percent", String.format("%.1f", successRate));
+        indent(xml, 2);
+        xml.writeEndElement();
 
         // Add system-out with detailed metrics
-        Element systemOut = doc.createElement("system-out");
-        testcase.appendChild(systemOut);
+        StringBuilder percentileLines = new StringBuilder();
+        for (double percentile : percentiles) {
+            percentileLines.append("\n  ").append(percentileLabel(percentile).replace('_', '.')).append(": ")
+                .append(summary.histogram.valueAtPercentile(percentile));
+            if (summary.correctedHistogram != null) {
+                percentileLines.append(" (corrected: ").append(summary.correctedHistogram.valueAtPercentile(percentile)).append(')');
+            }
+        }
+
+        StringBuilder assertionLines = new StringBuilder();
+        for (ServiceLevelObjectives.Outcome outcome : outcomes) {
+            assertionLines.append("\n  ").append(outcome.description()).append(": ").append(outcome.failed() ? "FAIL" : "PASS");
+        }
 
         String metrics = """
             === Performance Test Results for %s ===
@@ -235,80 +451,283 @@ public class GatlingJUnitReportGenerator {
             Response Times (ms):
               Min: %d
               Max: %d
-              Average: %d
-            Performance Assertions:
-              Max Response Time < 5000ms: %s
-              Success Rate > 90%%: %s""".formatted(
+              Average: %d%s
+            Performance Assertions:%s%s""".formatted(
             name,
             summary.count,
             summary.count - summary.failures,
             summary.failures,
             successRate,
-            (int)(summary.minTime * 1000),
-            (int)(summary.maxTime * 1000),
-            (int)((summary.totalTime / summary.count) * 1000),
-            summary.maxTime * 1000 < 5000 ? "PASS" : "FAIL",
-            successRate > 90 ? "PASS" : "FAIL"
+            summary.minTimeMs,
+            summary.maxTimeMs,
+            (long) summary.averageMillis(),
+            percentileLines,
+            assertionLines,
+            trendLine
         );
-        systemOut.setTextContent(metrics);
+        indent(xml, 2);
+        xml.writeStartElement("system-out");
+        xml.writeCharacters(metrics);
+        xml.writeEndElement();
+
+        indent(xml, 1);
+        xml.writeEndElement();
+    }
+
+    private void writeAssertionTestCase(XMLStreamWriter xml, String simulationName, String testName, String failureMessage)
+            throws XMLStreamException {
+        indent(xml, 1);
+        if (failureMessage == null) {
+            xml.writeEmptyElement("testcase");
+        } else {
+            xml.writeStartElement("testcase");
+        }
+        xml.writeAttribute("classname", simulationName);
+        xml.writeAttribute("name", testName);
+        xml.writeAttribute("time", "0.001");
+
+        if (failureMessage != null) {
+            indent(xml, 2);
+            xml.writeEmptyElement("failure");
+            xml.writeAttribute("message", failureMessage);
+            xml.writeAttribute("type", "AssertionError");
+            indent(xml, 1);
+            xml.writeEndElement();
+        }
+    }
+
+    /**
+     * Suite-level figures for the run after the detected warm-up phase.
+     */
+    private void writeSteadyStateProperties(XMLStreamWriter xml, TestResults results) throws XMLStreamException {
+        writeProperty(xml, 2, "window_seconds", String.valueOf(results.timeline.getWindowMillis() / 1000.0));
+        boolean warmupDetected = results.steadyStateStart != Long.MIN_VALUE;
+        writeProperty(xml, 2, "warmup_detected", String.valueOf(warmupDetected));
+        if (!warmupDetected) {
+            return;
+        }
+
+        long runStart = results.startTime != null ? results.startTime : results.timeline.windows().get(0).startMillis;
+        writeProperty(xml, 2, "warmup_seconds", String.format(Locale.ROOT, "%.3f", (results.steadyStateStart - runStart) / 1000.0));
+
+        WindowedMetrics.Window steady = results.timeline.totalFrom(results.steadyStateStart);
+        double steadySeconds = (results.endTime - results.steadyStateStart) / 1000.0;
+        writeProperty(xml, 2, "steady_state_requests_per_second",
+            steadySeconds > 0 ? String.format(Locale.ROOT, "%.2f", steady.count / steadySeconds) : "0");
+        writeProperty(xml, 2, "steady_state_error_percent",
+            steady.count > 0 ? String.format(Locale.ROOT, "%.2f", steady.failures * 100.0 / steady.count) : "0");
+        for (double percentile : percentiles) {
+            writeProperty(xml, 2, "steady_state_" + percentileLabel(percentile) + "_response_time_ms",
+                String.valueOf(steady.histogram.valueAtPercentile(percentile)));
+        }
+    }
+
+    /**
+     * Suite-level concurrency figures and the saturation knee, see {@link ConcurrencyTimeline}.
+     */
+    private void writeConcurrencyProperties(XMLStreamWriter xml, ConcurrencyTimeline concurrency) throws XMLStreamException {
+        if (concurrency.hasUserRecords) {
+            writeProperty(xml, 2, "max_active_users", String.valueOf(concurrency.maxActiveUsers));
+        }
+        writeProperty(xml, 2, "max_in_flight_requests", String.format(Locale.ROOT, "%.2f", concurrency.maxInFlight));
+        writeProperty(xml, 2, "littles_law_inconsistent_windows", String.valueOf(concurrency.littlesLawInconsistentWindows));
+        writeProperty(xml, 2, "saturation_detected", String.valueOf(concurrency.knee != null));
+        if (concurrency.knee != null) {
+            writeProperty(xml, 2, "saturation_knee_active_users", String.valueOf(concurrency.knee.activeUsers()));
+            writeProperty(xml, 2, "saturation_knee_requests_per_second", String.format(Locale.ROOT, "%.2f", concurrency.kneeRequestsPerSecond));
+            writeProperty(xml, 2, "saturation_knee_window_start_ms", String.valueOf(concurrency.knee.startMillis()));
+        }
+    }
 
-        return testcase;
+    /**
+     * Compare every request name that also appears in the simulation's baseline, see {@link BaselineComparison}.
+     */
+    private Map<String, BaselineComparison> compareWithBaseline(TestResults results) throws IOException {
+        Optional<Map<String, LatencyHistogram>> baseline = baselineStore.load(results.simulationName);
+        if (baseline.isEmpty()) {
+            return Map.of();
+        }
+        double[] effectPercentiles = Arrays.stream(percentiles).filter(p -> p <= BASELINE_MAX_PERCENTILE).toArray();
+        Map<String, BaselineComparison> comparisons = new HashMap<>();
+        for (Map.Entry<String, RequestSummary> entry : results.requestSummaries.entrySet()) {
+            LatencyHistogram baselineHistogram = baseline.get().get(entry.getKey());
+            if (baselineHistogram != null) {
+                comparisons.put(entry.getKey(), BaselineComparison.compare(baselineHistogram, entry.getValue().histogram,
+                    effectPercentiles, BASELINE_ALPHA, BASELINE_MIN_SHIFT_PERCENT));
+            }
+        }
+        return comparisons;
     }
 
-    private Element createResponseTimeAssertionTestCase(Document doc, String simulationName, String name, RequestSummary summary) {
-        Element testcase = doc.createElement("testcase");
-        testcase.setAttribute("classname", simulationName);
-        testcase.setAttribute("name", name + "_Response_Time_Under_5000ms");
-        testcase.setAttribute("time", "0.001");
+    /**
+     * Up to {@code gatling.report.trend.window} runs of each request name that started before
+     * this one, so reporting an old run again compares it against its own history.
+     */
+    private Map<String, List<TrendStore.Entry>> previousRuns(TestResults results) throws IOException {
+        if (!RECORD_TRENDS || results.startTime == null) {
+            return Map.of();
+        }
+        Map<String, List<TrendStore.Entry>> previousRuns = new HashMap<>();
+        for (String name : results.requestSummaries.keySet()) {
+            previousRuns.put(name, trendStore.last(results.simulationName, name, TREND_WINDOW, results.startTime));
+        }
+        return previousRuns;
+    }
+
+    private static long medianOf(List<TrendStore.Entry> runs, double percentile) {
+        long[] values = runs.stream().mapToLong(run -> run.percentile(percentile)).sorted().toArray();
+        return values[(values.length - 1) / 2];
+    }
+
+    /**
+     * Objectives are evaluated against the whole run, or only the steady state when
+     * {@code gatling.report.excludeWarmup} is set and a warm-up phase was detected, percentiles
+     * included.
+     */
+    private ServiceLevelObjectives.Subject requestSubject(TestResults results, String name, RequestSummary summary) {
+        RequestSummary evaluated = EXCLUDE_WARMUP ? summary.steadyState(results.steadyStateStart) : summary;
+        return new ServiceLevelObjectives.Subject(name, evaluated.count, evaluated.failures, evaluated.maxTimeMs,
+            evaluatedDuration(results), evaluated.histogram, evaluated.correctedHistogram,
+            evaluatedWindows(results, summary.windows), summary.windows.getWindowMillis());
+    }
 
-        if (summary.maxTime * 1000 >= 5000) {
-            Element failure = doc.createElement("failure");
-            failure.setAttribute("message", String.format("Max response time %dms exceeds 5000ms threshold", (int)(summary.maxTime * 1000)));
-            failure.setAttribute("type", "AssertionError");
-            testcase.appendChild(failure);
+    private ServiceLevelObjectives.Subject runSubject(TestResults results) {
+        long from = evaluatedFrom(results);
+        WindowedMetrics.Window total = results.timeline.totalFrom(from);
+        LatencyHistogram corrected = null;
+        if (EXPECTED_INTERVAL_MILLIS > 0 && from != Long.MIN_VALUE) {
+            // The corrected histograms cover the whole run, so correct the steady-state one instead
+            corrected = total.histogram.copyCorrectedForExpectedInterval(EXPECTED_INTERVAL_MILLIS);
+        } else if (EXPECTED_INTERVAL_MILLIS > 0) {
+            corrected = new LatencyHistogram();
+            for (RequestSummary summary : results.requestSummaries.values()) {
+                corrected.merge(summary.correctedHistogram);
+            }
         }
+        return new ServiceLevelObjectives.Subject("Run", total.count, total.failures, total.count > 0 ? total.maxTimeMs : 0,
+            evaluatedDuration(results), total.histogram, corrected,
+            evaluatedWindows(results, results.timeline), results.timeline.getWindowMillis());
+    }
 
-        return testcase;
+    private long evaluatedFrom(TestResults results) {
+        return EXCLUDE_WARMUP ? results.steadyStateStart : Long.MIN_VALUE;
     }
 
-    private Element createSuccessRateAssertionTestCase(Document doc, String simulationName, String name, RequestSummary summary) {
-        Element testcase = doc.createElement("testcase");
-        testcase.setAttribute("classname", simulationName);
-        testcase.setAttribute("name", name + "_Success_Rate_Above_90_Percent");
-        testcase.setAttribute("time", "0.001");
+    private double evaluatedDuration(TestResults results) {
+        return evaluatedFrom(results) != Long.MIN_VALUE
+            ? (results.endTime - results.steadyStateStart) / 1000.0
+            : results.duration;
+    }
+
+    private List<WindowedMetrics.Window> evaluatedWindows(TestResults results, WindowedMetrics windows) {
+        long from = evaluatedFrom(results);
+        return windows.windows().stream()
+            .filter(window -> window.count > 0 && window.startMillis >= from)
+            .toList();
+    }
 
-        double successRate = ((summary.count - summary.failures) / (double) summary.count) * 100;
-        if (successRate < 90) {
-            Element failure = doc.createElement("failure");
-            failure.setAttribute("message", String.format("Success rate %.1f%% is below 90%% threshold", successRate));
-            failure.setAttribute("type", "AssertionError");
-            testcase.appendChild(failure);
+    /**
+     * Write per-window throughput, errors, latency percentiles and concurrency as CSV. Gaps in the
+     * timeline are written as zero rows, carrying the active user count forward.
+     */
+    void writeTimelineCsv(TestResults results, Writer out) throws IOException {
+        StringBuilder header = new StringBuilder("window_start_ms,requests,errors,requests_per_second,mean_response_time_ms");
+        for (double percentile : percentiles) {
+            header.append(',').append(percentileLabel(percentile)).append("_response_time_ms");
         }
+        out.write(header.append(",max_response_time_ms,warmup,active_users,in_flight_requests,"
+            + "littles_law_in_flight_requests,littles_law_consistent,saturated\n").toString());
 
-        return testcase;
+        long windowMillis = results.timeline.getWindowMillis();
+        Long expectedStart = null;
+        long activeUsers = 0;
+        for (WindowedMetrics.Window window : results.timeline.windows()) {
+            for (long start = expectedStart == null ? window.startMillis : expectedStart; start < window.startMillis; start += windowMillis) {
+                out.write(start + ",0,0,0.00,0" + ",0".repeat(percentiles.length) + ",0," + (start < results.steadyStateStart)
+                    + "," + activeUsers + ",0.00,0.00,true,false\n");
+            }
+            ConcurrencyTimeline.Row concurrency = results.concurrency.rowAt(window.startMillis);
+            StringBuilder row = new StringBuilder()
+                .append(window.startMillis).append(',')
+                .append(window.count).append(',')
+                .append(window.failures).append(',')
+                .append(String.format(Locale.ROOT, "%.2f", window.count * 1000.0 / windowMillis)).append(',')
+                .append((long) window.averageMillis());
+            for (double percentile : percentiles) {
+                row.append(',').append(window.histogram.valueAtPercentile(percentile));
+            }
+            row.append(',').append(window.maxTimeMs)
+                .append(',').append(window.startMillis < results.steadyStateStart)
+                .append(',').append(concurrency.activeUsers())
+                .append(',').append(String.format(Locale.ROOT, "%.2f", concurrency.inFlight()))
+                .append(',').append(String.format(Locale.ROOT, "%.2f", concurrency.littlesLawInFlight()))
+                .append(',').append(concurrency.littlesLawConsistent())
+                .append(',').append(concurrency.saturated())
+                .append('\n');
+            out.write(row.toString());
+            expectedStart = window.startMillis + windowMillis;
+            activeUsers = concurrency.usersAtEnd();
+        }
     }
 
-    private void addProperty(Document doc, Element properties, String name, String value) {
-        Element property = doc.createElement("property");
-        property.setAttribute("name", name);
-        property.setAttribute("value", value);
-        properties.appendChild(property);
+    private void writeProperty(XMLStreamWriter xml, int depth, String name, String value) throws XMLStreamException {
+        indent(xml, depth);
+        xml.writeEmptyElement("property");
+        xml.writeAttribute("name", name);
+        xml.writeAttribute("value", value);
     }
 
-    private void writeXmlToFile(Document doc) throws Exception {
-        // Create output directory
-        Path junitDir = Paths.get(JUNIT_DIR);
-        Files.createDirectories(junitDir);
+    private void indent(XMLStreamWriter xml, int depth) throws XMLStreamException {
+        xml.writeCharacters("\n" + "  ".repeat(depth));
+    }
 
-        // Write XML to file
-        TransformerFactory transformerFactory = TransformerFactory.newInstance();
-        Transformer transformer = transformerFactory.newTransformer();
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "2");
+    /**
+     * Read the percentile levels Gatling charts ({@code charting.indicators.percentile1..4}) so the
+     * JUnit report exposes the same indicators, plus p99.9 for tail-latency gating.
+     */
+    static double[] loadPercentileLevels(Path gatlingConf) {
+        List<Double> levels = new ArrayList<>();
+        if (Files.exists(gatlingConf)) {
+            try (Stream<String> lines = Files.lines(gatlingConf)) {
+                lines.map(PERCENTILE_SETTING::matcher)
+                    .filter(Matcher::find)
+                    .forEach(m -> levels.add(Double.parseDouble(m.group(1))));
+            } catch (IOException | NumberFormatException e) {
+                LOGGER.log(Level.WARNING, "Could not read percentiles from " + gatlingConf + ", using defaults", e);
+                levels.clear();
+            }
+        }
+        if (levels.isEmpty()) {
+            Arrays.stream(DEFAULT_PERCENTILES).forEach(levels::add);
+        }
+        if (!levels.contains(EXTRA_TAIL_PERCENTILE)) {
+            levels.add(EXTRA_TAIL_PERCENTILE);
+        }
+        return levels.stream().mapToDouble(Double::doubleValue).sorted().distinct().toArray();
+    }
 
-        DOMSource source = new DOMSource(doc);
-        StreamResult result = new StreamResult(new File(junitDir.toFile(), OUTPUT_FILE));
-        transformer.transform(source, result);
+    /**
+     * Expected interval between consecutive requests of one virtual user, used to correct
+     * percentiles for coordinated omission: {@code gatling.report.expectedIntervalMs}, or derived
+     * from {@code gatling.report.expectedRequestsPerSecondPerUser}. The rate is that of a single
+     * virtual user, not of the whole run, since each response is corrected on its own; divide a
+     * run-wide target by the number of virtual users.
+     * 0 disables the correction.
+     */
+    private static long expectedIntervalMillis() {
+        Long interval = Long.getLong("gatling.report.expectedIntervalMs");
+        if (interval != null) {
+            return Math.max(0, interval);
+        }
+        double rate = Double.parseDouble(System.getProperty("gatling.report.expectedRequestsPerSecondPerUser", "0"));
+        return rate > 0 ? Math.max(1, Math.round(1000 / rate)) : 0;
+    }
+
+    static String percentileLabel(double percentile) {
+        String value = percentile == Math.rint(percentile)
+            ? String.valueOf((long) percentile)
+            : String.valueOf(percentile).replace('.', '_');
+        return "p" + value;
     }
 
     private Path findLatestSimulationLog() throws IOException {
@@ -336,20 +755,55 @@ public class GatlingJUnitReportGenerator {
         }
     }
 
+    /**
+     * Print the last {@code last} runs of every request name of a simulation, or of one request
+     * name. Without a simulation, list the simulations that have trends.
+     */
+    private void printTrends(String simulation, String request, int last) throws IOException {
+        if (simulation == null) {
+            List<String> simulations = trendStore.simulations();
+            System.out.println(simulations.isEmpty()
+                ? "No trends recorded in " + TREND_DIR
+                : "Simulations with trends (-Dgatling.report.trend.simulation=...):");
+            simulations.forEach(name -> System.out.println("  " + name));
+            return;
+        }
+        List<String> requests = request != null ? List.of(request) : trendStore.requests(simulation);
+        DateTimeFormatter format = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+        for (String name : requests) {
+            List<TrendStore.Entry> runs = trendStore.last(simulation, name, last, Long.MAX_VALUE);
+            System.out.println("=== " + name + " (last " + runs.size() + " runs) ===");
+            System.out.println(String.format(Locale.ROOT, "%-19s %9s %7s %8s %7s %7s %7s %7s",
+                "run start", "requests", "error%", "mean", "p50", "p95", "p99", "max"));
+            for (TrendStore.Entry run : runs) {
+                System.out.println(String.format(Locale.ROOT, "%-19s %9d %7.2f %8.1f %7d %7d %7d %7d",
+                    LocalDateTime.ofInstant(Instant.ofEpochMilli(run.runStart()), ZoneId.systemDefault()).format(format),
+                    run.count(), run.errorPercent(), run.meanMs(), run.percentile(50), run.percentile(95),
+                    run.percentile(99), run.maxMs()));
+            }
+        }
+    }
+
     private void printSummary(TestResults results) {
-        System.out.println("JUnit XML report generated: " + JUNIT_DIR + "/" + OUTPUT_FILE);
+        for (Path reportFile : reportFiles(Paths.get(JUNIT_DIR, OUTPUT_FILE))) {
+            System.out.println("Report generated: " + reportFile);
+        }
         System.out.println("Total requests: " + results.totalRequests);
         System.out.println("Successful: " + results.successfulRequests);
         System.out.println("Failed: " + results.failedRequests);
 
         if (results.totalRequests > 0) {
             double successRate = (results.successfulRequests / (double) results.totalRequests) * 100;
-            System.out.println("Success rate: " + String.format("%.2f%%", successRate));
+            System.out.println("Success rate: " + String.format(Locale.ROOT, "%.2f%%", successRate));
         } else {
             System.out.println("Success rate: N/A");
         }
 
-        System.out.println("Test duration: " + String.format("%.2f seconds", results.duration));
+        System.out.println("Test duration: " + String.format(Locale.ROOT, "%.2f seconds", results.duration));
+        if (results.concurrency.knee != null) {
+            System.out.println("Saturation knee: " + String.format(Locale.ROOT, "%d active users at %.2f req/s",
+                results.concurrency.knee.activeUsers(), results.concurrency.kneeRequestsPerSecond));
+        }
     }
 
     // Inner classes with proper visibility
@@ -361,25 +815,232 @@ public class GatlingJUnitReportGenerator {
         int totalRequests = 0;
         int successfulRequests = 0;
         int failedRequests = 0;
-        List<TestCase> testCases = new ArrayList<>();
-    }
+        Map<String, RequestSummary> requestSummaries = new LinkedHashMap<>();
+        WindowedMetrics timeline = new WindowedMetrics(WINDOW_MILLIS, true);
+        long steadyStateStart = Long.MIN_VALUE;
+        ConcurrencyTimeline concurrency;
+        SimulationLogArchive.RequestVisitor requestListener;
+
+        void recordRequest(String requestName, long startTime, long endTime, boolean ok) {
+            if (requestListener != null) {
+                requestListener.onRequest(requestName, startTime, endTime, ok);
+            }
+            requestSummaries.computeIfAbsent(requestName, k -> new RequestSummary())
+                .record(endTime, endTime - startTime, ok);
+            timeline.record(endTime, endTime - startTime, ok);
+            timeline.recordInFlight(startTime, endTime);
+
+            totalRequests++;
+            if (ok) {
+                successfulRequests++;
+            } else {
+                failedRequests++;
+            }
+
+            // Update end time
+            if (this.endTime == null || endTime > this.endTime) {
+                this.endTime = endTime;
+            }
+        }
+
+        public String getSimulationName() {
+            return simulationName;
+        }
+
+        public Long getStartTime() {
+            return startTime;
+        }
+
+        public double getDuration() {
+            return duration;
+        }
+
+        public int getTotalRequests() {
+            return totalRequests;
+        }
+
+        public int getFailedRequests() {
+            return failedRequests;
+        }
+
+        /**
+         * Start of the steady state, or {@code Long.MIN_VALUE} when no warm-up phase was detected.
+         */
+        public long getSteadyStateStart() {
+            return steadyStateStart;
+        }
+
+        /**
+         * Per-request-name aggregates, in the same order the JUnit XML lists them.
+         */
+        public Map<String, RequestSummary> getRequestSummaries() {
+            return Collections.unmodifiableMap(requestSummaries);
+        }
+
+        void recordUserStart(long timestamp) {
+            if (requestListener != null) {
+                requestListener.onUserStart(timestamp);
+            }
+            timeline.recordUserStart(timestamp);
+        }
+
+        void recordUserEnd(long timestamp) {
+            if (requestListener != null) {
+                requestListener.onUserEnd(timestamp);
+            }
+            timeline.recordUserEnd(timestamp);
+        }
 
-    public static class TestCase {
-        String name;
-        String classname;
-        double time;
-        String status;
-        long timestamp;
-        String failure;
+        /**
+         * Fold results parsed from a later part of the same log into this one. Request names
+         * first seen in {@code other} are appended in its order, keeping map iteration order
+         * identical to a sequential parse.
+         */
+        void merge(TestResults other) {
+            if (simulationName == null) {
+                simulationName = other.simulationName;
+            }
+            if (startTime == null) {
+                startTime = other.startTime;
+            }
+            if (other.endTime != null && (endTime == null || other.endTime > endTime)) {
+                endTime = other.endTime;
+            }
+            totalRequests += other.totalRequests;
+            successfulRequests += other.successfulRequests;
+            failedRequests += other.failedRequests;
+            timeline.merge(other.timeline);
+            other.requestSummaries.forEach((name, summary) ->
+                requestSummaries.merge(name, summary, (mine, theirs) -> {
+                    mine.merge(theirs);
+                    return mine;
+                }));
+        }
+
+        void finish() {
+            if (startTime != null && endTime != null) {
+                duration = (endTime - startTime) / 1000.0;
+            }
+            steadyStateStart = timeline.detectSteadyStateStart();
+            concurrency = ConcurrencyTimeline.analyze(timeline);
+        }
     }
 
     public static class RequestSummary {
         int count = 0;
         int failures = 0;
-        double totalTime = 0.0;
-        double minTime = Double.MAX_VALUE;
-        double maxTime = 0.0;
+        long totalTimeMs = 0;
+        long minTimeMs = Long.MAX_VALUE;
+        long maxTimeMs = 0;
         String status = "OK";
-        List<Double> times = new ArrayList<>();
+        LatencyHistogram histogram = new LatencyHistogram();
+        /** Coordinated-omission corrected counterpart of {@link #histogram}, null unless an expected interval is set. */
+        LatencyHistogram correctedHistogram = EXPECTED_INTERVAL_MILLIS > 0 ? new LatencyHistogram() : null;
+        // Windowed histograms give the steady-state percentiles objectives are evaluated on
+        WindowedMetrics windows = new WindowedMetrics(WINDOW_MILLIS, EXCLUDE_WARMUP);
+
+        void record(long endTime, long responseTimeMs, boolean ok) {
+            count++;
+            windows.record(endTime, responseTimeMs, ok);
+            histogram.record(responseTimeMs);
+            if (correctedHistogram != null) {
+                correctedHistogram.recordWithExpectedInterval(responseTimeMs, EXPECTED_INTERVAL_MILLIS);
+            }
+            totalTimeMs += responseTimeMs;
+            minTimeMs = Math.min(minTimeMs, responseTimeMs);
+            maxTimeMs = Math.max(maxTimeMs, responseTimeMs);
+
+            if (!ok) {
+                failures++;
+                status = "FAILED";
+            }
+        }
+
+        void merge(RequestSummary other) {
+            count += other.count;
+            failures += other.failures;
+            totalTimeMs += other.totalTimeMs;
+            minTimeMs = Math.min(minTimeMs, other.minTimeMs);
+            maxTimeMs = Math.max(maxTimeMs, other.maxTimeMs);
+            histogram.merge(other.histogram);
+            if (correctedHistogram != null && other.correctedHistogram != null) {
+                correctedHistogram.merge(other.correctedHistogram);
+            }
+            windows.merge(other.windows);
+            if (other.failures > 0) {
+                status = "FAILED";
+            }
+        }
+
+        /**
+         * Figures for requests completing at or after {@code fromMillis}. The windows only have
+         * histograms with {@code gatling.report.excludeWarmup}; without them, the percentiles are
+         * the whole run's.
+         */
+        RequestSummary steadyState(long fromMillis) {
+            if (fromMillis == Long.MIN_VALUE) {
+                return this;
+            }
+            WindowedMetrics.Window steady = windows.totalFrom(fromMillis);
+            if (steady.count == 0) {
+                return this;
+            }
+            RequestSummary summary = new RequestSummary();
+            summary.count = (int) steady.count;
+            summary.failures = (int) steady.failures;
+            summary.totalTimeMs = steady.totalTimeMs;
+            summary.minTimeMs = steady.minTimeMs;
+            summary.maxTimeMs = steady.maxTimeMs;
+            summary.status = steady.failures > 0 ? "FAILED" : "OK";
+            if (steady.histogram != null) {
+                summary.histogram = steady.histogram;
+                if (correctedHistogram != null) {
+                    summary.correctedHistogram = steady.histogram.copyCorrectedForExpectedInterval(EXPECTED_INTERVAL_MILLIS);
+                }
+            } else {
+                summary.histogram = histogram;
+                summary.correctedHistogram = correctedHistogram;
+            }
+            return summary;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public long getTotalTimeMs() {
+            return totalTimeMs;
+        }
+
+        public long getMinTimeMs() {
+            return minTimeMs;
+        }
+
+        public long getMaxTimeMs() {
+            return maxTimeMs;
+        }
+
+        public LatencyHistogram getHistogram() {
+            return histogram;
+        }
+
+        /**
+         * Coordinated-omission corrected histogram, or null when no expected interval is configured.
+         */
+        public LatencyHistogram getCorrectedHistogram() {
+            return correctedHistogram;
+        }
+
+        public double averageMillis() {
+            return totalTimeMs / (double) count;
+        }
+
+        public double successRate() {
+            return ((count - failures) / (double) count) * 100;
+        }
     }
 }
@@ -0,0 +1,106 @@
+package com.example.reporting;
+
+import com.example.reporting.GatlingJUnitReportGenerator.RequestSummary;
+import com.example.reporting.GatlingJUnitReportGenerator.TestResults;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+import static com.example.reporting.GatlingJUnitReportGenerator.percentileLabel;
+
+/**
+ * Writes the run and per-request aggregates as a JSON document with Jackson's streaming
+ * generator, so no object tree is built.
+ */
+public class JsonReportSink implements ReportSink {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final double[] percentiles;
+
+    public JsonReportSink(double[] percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    @Override
+    public String fileSuffix() {
+        return ".json";
+    }
+
+    @Override
+    public void write(TestResults results, Writer out) throws IOException {
+        try (JsonGenerator json = JSON_FACTORY.createGenerator(out)) {
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.useDefaultPrettyPrinter();
+
+            json.writeStartObject();
+            json.writeStringField("simulation", results.getSimulationName());
+            if (results.getStartTime() != null) {
+                json.writeNumberField("startTime", results.getStartTime());
+            }
+            json.writeNumberField("durationSeconds", results.getDuration());
+            json.writeNumberField("totalRequests", results.getTotalRequests());
+            json.writeNumberField("failedRequests", results.getFailedRequests());
+            json.writeNumberField("requestsPerSecond",
+                results.getDuration() > 0 ? results.getTotalRequests() / results.getDuration() : 0);
+            if (GatlingJUnitReportGenerator.EXPECTED_INTERVAL_MILLIS > 0) {
+                json.writeNumberField("expectedIntervalMs", GatlingJUnitReportGenerator.EXPECTED_INTERVAL_MILLIS);
+            }
+            if (results.getSteadyStateStart() != Long.MIN_VALUE) {
+                json.writeNumberField("steadyStateStart", results.getSteadyStateStart());
+            }
+
+            json.writeArrayFieldStart("requests");
+            for (Map.Entry<String, RequestSummary> entry : results.getRequestSummaries().entrySet()) {
+                writeRequest(json, entry.getKey(), entry.getValue());
+            }
+            json.writeEndArray();
+
+            ConcurrencyTimeline concurrency = results.concurrency;
+            if (concurrency != null) {
+                json.writeObjectFieldStart("concurrency");
+                if (concurrency.hasUserRecords) {
+                    json.writeNumberField("maxActiveUsers", concurrency.maxActiveUsers);
+                }
+                json.writeNumberField("maxInFlightRequests", concurrency.maxInFlight);
+                json.writeNumberField("littlesLawInconsistentWindows", concurrency.littlesLawInconsistentWindows);
+                json.writeBooleanField("saturationDetected", concurrency.knee != null);
+                if (concurrency.knee != null) {
+                    json.writeNumberField("saturationKneeConcurrency", concurrency.kneeConcurrency());
+                    json.writeNumberField("saturationKneeRequestsPerSecond", concurrency.kneeRequestsPerSecond);
+                    json.writeNumberField("saturationKneeWindowStart", concurrency.knee.startMillis());
+                }
+                json.writeEndObject();
+            }
+            json.writeEndObject();
+        }
+        out.write("\n");
+    }
+
+    private void writeRequest(JsonGenerator json, String name, RequestSummary summary) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("name", name);
+        json.writeNumberField("count", summary.getCount());
+        json.writeNumberField("failures", summary.getFailures());
+        json.writeNumberField("successRatePercent", summary.successRate());
+        json.writeNumberField("minResponseTimeMs", summary.getMinTimeMs());
+        json.writeNumberField("maxResponseTimeMs", summary.getMaxTimeMs());
+        json.writeNumberField("meanResponseTimeMs", summary.averageMillis());
+        writePercentiles(json, "percentiles", summary.getHistogram());
+        if (summary.getCorrectedHistogram() != null) {
+            writePercentiles(json, "correctedPercentiles", summary.getCorrectedHistogram());
+        }
+        json.writeEndObject();
+    }
+
+    private void writePercentiles(JsonGenerator json, String fieldName, LatencyHistogram histogram) throws IOException {
+        json.writeObjectFieldStart(fieldName);
+        for (double percentile : percentiles) {
+            json.writeNumberField(percentileLabel(percentile), histogram.valueAtPercentile(percentile));
+        }
+        json.writeEndObject();
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.reporting;
+
+import java.util.Arrays;
+
+/**
+ * Bounded-size, mergeable latency histogram in the style of HdrHistogram.
+ * Values are response times in milliseconds. Values below 256 ms are counted exactly; above that,
+ * each power-of-two range is split into 128 linear sub-buckets, which keeps the relative error of
+ * any reported percentile below 0.8%. Memory is constant (one {@code long[]}) no matter how many
+ * values are recorded; the array only grows as far as the largest value seen, so histograms of
+ * fast endpoints stay small.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 8;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT / 2;
+
+    /** Values above this are counted in the top bucket; the exact maximum is still tracked. */
+    static final long HIGHEST_TRACKABLE_VALUE_MS = 60L * 60 * 1000;
+
+    private static final int BUCKET_COUNT = indexFor(HIGHEST_TRACKABLE_VALUE_MS) + 1;
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] counts = EMPTY;
+    private long totalCount = 0;
+    private long totalValue = 0;
+    private long minValue = Long.MAX_VALUE;
+    private long maxValue = 0;
+
+    public void record(long valueMs) {
+        recordCount(valueMs, 1);
+    }
+
+    public void recordCount(long valueMs, long count) {
+        long value = Math.max(0, valueMs);
+        int index = indexFor(Math.min(value, HIGHEST_TRACKABLE_VALUE_MS));
+        ensureCapacity(index + 1);
+        counts[index] += count;
+        totalCount += count;
+        totalValue += value * count;
+        minValue = Math.min(minValue, value);
+        maxValue = Math.max(maxValue, value);
+    }
+
+    /**
+     * Record a value and correct for coordinated omission, like HdrHistogram's
+     * {@code recordValueWithExpectedInterval}: a closed-model load generator waiting on a response
+     * of {@code valueMs} did not send the requests that were due every {@code expectedIntervalMs}
+     * meanwhile, so the values those requests would have seen ({@code valueMs - k * expectedIntervalMs}
+     * down to the interval) are recorded as well. The back-fill is counted bucket by bucket, so a
+     * long stall costs no more than the number of buckets it spans.
+     */
+    public void recordWithExpectedInterval(long valueMs, long expectedIntervalMs) {
+        recordCountWithExpectedInterval(valueMs, 1, expectedIntervalMs);
+    }
+
+    /**
+     * A copy of this histogram as if every value had been recorded with
+     * {@link #recordWithExpectedInterval}. Each bucket's values are taken to be its highest
+     * equivalent value, as for percentiles, so it matches a histogram corrected while recording
+     * to within the bucket precision.
+     */
+    LatencyHistogram copyCorrectedForExpectedInterval(long expectedIntervalMs) {
+        LatencyHistogram corrected = new LatencyHistogram();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                long value = Math.max(Math.min(highestEquivalentValue(i), maxValue), minValue);
+                corrected.recordCountWithExpectedInterval(value, counts[i], expectedIntervalMs);
+            }
+        }
+        return corrected;
+    }
+
+    private void recordCountWithExpectedInterval(long valueMs, long times, long expectedIntervalMs) {
+        recordCount(valueMs, times);
+        if (expectedIntervalMs <= 0) {
+            return;
+        }
+        long missing = valueMs - expectedIntervalMs;
+        if (missing < expectedIntervalMs) {
+            return;
+        }
+        minValue = Math.min(minValue, missing - (missing - expectedIntervalMs) / expectedIntervalMs * expectedIntervalMs);
+        while (missing >= expectedIntervalMs) {
+            int index = indexFor(Math.min(missing, HIGHEST_TRACKABLE_VALUE_MS));
+            long bucketFloor = Math.max(lowestEquivalentValue(index), expectedIntervalMs);
+            long count = (missing - bucketFloor) / expectedIntervalMs + 1;
+            ensureCapacity(index + 1);
+            counts[index] += count * times;
+            totalCount += count * times;
+            // missing, missing - interval, ... for count values
+            totalValue += (count * missing - expectedIntervalMs * (count * (count - 1) / 2)) * times;
+            missing -= count * expectedIntervalMs;
+        }
+    }
+
+    /**
+     * Add all counts from another histogram into this one.
+     */
+    public void merge(LatencyHistogram other) {
+        ensureCapacity(other.counts.length);
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        totalValue += other.totalValue;
+        minValue = Math.min(minValue, other.minValue);
+        maxValue = Math.max(maxValue, other.maxValue);
+    }
+
+    /**
+     * Value at the given percentile (0-100], reported as the highest value equivalent to the
+     * bucket the percentile falls into, capped at the recorded maximum.
+     */
+    public long valueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= target) {
+                return Math.min(highestEquivalentValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    /**
+     * Rebuild a histogram from {@link #bucketCount()} counts, e.g. a stored baseline snapshot.
+     * Its {@link #getTotalValue()} is estimated from the bucket midpoints.
+     */
+    static LatencyHistogram fromBucketCounts(long[] bucketCounts, long minValue, long maxValue) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.counts = Arrays.copyOf(bucketCounts, Math.min(bucketCounts.length, BUCKET_COUNT));
+        histogram.totalCount = Arrays.stream(histogram.counts).sum();
+        for (int i = 0; i < histogram.counts.length; i++) {
+            histogram.totalValue += histogram.counts[i] * ((lowestEquivalentValue(i) + highestEquivalentValue(i)) / 2);
+        }
+        histogram.minValue = histogram.totalCount == 0 ? Long.MAX_VALUE : minValue;
+        histogram.maxValue = maxValue;
+        return histogram;
+    }
+
+    /**
+     * Number of buckets in use; buckets at or above it are empty.
+     */
+    int bucketCount() {
+        return counts.length;
+    }
+
+    long countAtBucket(int index) {
+        return index < counts.length ? counts[index] : 0;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /**
+     * Sum of all recorded values, back-filled ones included, in milliseconds.
+     */
+    public long getTotalValue() {
+        return totalValue;
+    }
+
+    public long getMinValue() {
+        return totalCount == 0 ? 0 : minValue;
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    private void ensureCapacity(int length) {
+        if (length > counts.length) {
+            int newLength = Math.min(BUCKET_COUNT, Math.max(length, counts.length + SUB_BUCKET_HALF_COUNT));
+            counts = Arrays.copyOf(counts, newLength);
+        }
+    }
+
+    static int indexFor(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        // Shift so that the value lands in the upper half of the sub-bucket range [128, 256)
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        int subBucket = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + (shift - 1) * SUB_BUCKET_HALF_COUNT + (subBucket - SUB_BUCKET_HALF_COUNT);
+    }
+
+    static long lowestEquivalentValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int shift = offset / SUB_BUCKET_HALF_COUNT + 1;
+        long subBucket = offset % SUB_BUCKET_HALF_COUNT + SUB_BUCKET_HALF_COUNT;
+        return subBucket << shift;
+    }
+
+    static long highestEquivalentValue(int index) {
+        return lowestEquivalentValue(index + 1) - 1;
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.reporting;
+
+import com.example.reporting.GatlingJUnitReportGenerator.TestResults;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Follows the simulation.log of a running Gatling simulation, folding appended records into
+ * rolling aggregates and printing live throughput and percentiles for each completed window.
+ * When a completed window breaches the configured p95 or error-rate threshold for a sustained
+ * period, the breach callback is invoked once; {@code GatlingRunner} uses it to stop the run early.
+ */
+public class LiveReportFollower implements Runnable {
+
+    private static final Logger LOGGER = Logger.getLogger(LiveReportFollower.class.getName());
+    private static final long POLL_INTERVAL_MILLIS = 1000;
+    /** Records are written when responses complete, so allow a little reordering before a window counts as closed. */
+    private static final long CLOSE_GRACE_MILLIS = 2000;
+    /** Stop following when the log has not grown for this long. */
+    private static final long IDLE_TIMEOUT_MILLIS = 60_000;
+
+    private final Path gatlingDir;
+    private final long maxP95Ms;
+    private final double maxErrorPercent;
+    private final long sustainMillis;
+    private final Runnable onBreach;
+    private final PrintStream out;
+
+    private final TestResults results = new TestResults();
+    private final SimulationLogTokenizer tokenizer = new SimulationLogTokenizer();
+    private long lastEvaluatedWindowStart = Long.MIN_VALUE;
+    private long breachStart = Long.MIN_VALUE;
+    private boolean breached = false;
+
+    public LiveReportFollower(Path gatlingDir, long maxP95Ms, double maxErrorPercent, long sustainMillis,
+                              Runnable onBreach, PrintStream out) {
+        this.gatlingDir = gatlingDir;
+        this.maxP95Ms = maxP95Ms;
+        this.maxErrorPercent = maxErrorPercent;
+        this.sustainMillis = sustainMillis;
+        this.onBreach = onBreach;
+        this.out = out;
+    }
+
+    /**
+     * Create a follower configured from {@code gatling.report.follow.*} system properties.
+     * A threshold of 0 disables that check.
+     */
+    public static LiveReportFollower fromSystemProperties(Path gatlingDir, Runnable onBreach) {
+        return new LiveReportFollower(
+            gatlingDir,
+            Long.getLong("gatling.report.follow.maxP95Ms", 0),
+            Double.parseDouble(System.getProperty("gatling.report.follow.maxErrorPercent", "0")),
+            Long.getLong("gatling.report.follow.sustainSeconds", 30) * 1000,
+            onBreach,
+            System.out);
+    }
+
+    @Override
+    public void run() {
+        try {
+            follow();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Live report follower stopped: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Follow the newest run until Gatling writes its HTML report or the log goes idle.
+     *
+     * @return true if a threshold was breached
+     */
+    public boolean follow() throws IOException, InterruptedException {
+        long followStart = System.currentTimeMillis();
+        Path logFile = awaitSimulationLog(followStart);
+        out.println("Following " + logFile);
+
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            byte[] bytes = new byte[1024 * 1024];
+            int pending = 0;
+            long position = 0;
+            long lastGrowth = System.currentTimeMillis();
+
+            while (true) {
+                long size = channel.size();
+                if (size > position) {
+                    lastGrowth = System.currentTimeMillis();
+                    while (position < size) {
+                        if (pending == bytes.length) {
+                            bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                        }
+                        int read = channel.read(ByteBuffer.wrap(bytes, pending, bytes.length - pending), position);
+                        if (read <= 0) {
+                            break;
+                        }
+                        position += read;
+                        pending = consumeCompleteLines(bytes, pending + read);
+                    }
+                    evaluateClosedWindows(false);
+                } else if (runFinished(logFile) || System.currentTimeMillis() - lastGrowth > IDLE_TIMEOUT_MILLIS) {
+                    break;
+                }
+                Thread.sleep(POLL_INTERVAL_MILLIS);
+            }
+        }
+
+        evaluateClosedWindows(true);
+        results.finish();
+        out.printf("Live follow finished: %d requests, %d failed%n", results.totalRequests, results.failedRequests);
+        return breached;
+    }
+
+    /**
+     * Tokenize every complete line in {@code bytes[0, length)} and move the trailing partial line
+     * to the front of the buffer.
+     *
+     * @return length of the partial line left in the buffer
+     */
+    private int consumeCompleteLines(byte[] bytes, int length) {
+        int lineBegin = 0;
+        for (int i = 0; i < length; i++) {
+            if (bytes[i] == '\n') {
+                tokenizer.tokenize(bytes, lineBegin, i, results);
+                lineBegin = i + 1;
+            }
+        }
+        System.arraycopy(bytes, lineBegin, bytes, 0, length - lineBegin);
+        return length - lineBegin;
+    }
+
+    private void evaluateClosedWindows(boolean includeOpenWindows) {
+        if (results.endTime == null) {
+            return;
+        }
+        WindowedMetrics timeline = results.timeline;
+        long windowMillis = timeline.getWindowMillis();
+        long closedBefore = includeOpenWindows ? Long.MAX_VALUE : results.endTime - CLOSE_GRACE_MILLIS;
+
+        for (WindowedMetrics.Window window : timeline.windows()) {
+            if (window.startMillis <= lastEvaluatedWindowStart || window.startMillis + windowMillis > closedBefore) {
+                continue;
+            }
+            lastEvaluatedWindowStart = window.startMillis;
+            if (window.count == 0) {
+                continue;
+            }
+
+            long p95 = window.histogram.valueAtPercentile(95);
+            long p99 = window.histogram.valueAtPercentile(99);
+            double errorPercent = window.failures * 100.0 / window.count;
+            out.printf("[live] %tT  %8.1f req/s  errors %5.1f%%  p95 %6d ms  p99 %6d ms%n",
+                window.startMillis, window.count * 1000.0 / windowMillis, errorPercent, p95, p99);
+
+            boolean windowBreached = (maxP95Ms > 0 && p95 > maxP95Ms)
+                || (maxErrorPercent > 0 && errorPercent > maxErrorPercent);
+            if (!windowBreached) {
+                breachStart = Long.MIN_VALUE;
+                continue;
+            }
+            if (breachStart == Long.MIN_VALUE) {
+                breachStart = window.startMillis;
+            }
+            if (!breached && window.startMillis + windowMillis - breachStart >= sustainMillis) {
+                breached = true;
+                out.printf("[live] SLO breached for %d s (p95 limit %d ms, error limit %.1f%%)%n",
+                    sustainMillis / 1000, maxP95Ms, maxErrorPercent);
+                onBreach.run();
+            }
+        }
+    }
+
+    private Path awaitSimulationLog(long followStart) throws IOException, InterruptedException {
+        while (true) {
+            Optional<Path> logFile = findActiveSimulationLog(followStart);
+            if (logFile.isPresent()) {
+                return logFile.get();
+            }
+            Thread.sleep(POLL_INTERVAL_MILLIS);
+        }
+    }
+
+    /**
+     * The newest simulation.log of a run that is in progress: written to since we started, or
+     * still without an HTML report and written to shortly before. A run that finished just before
+     * we started has its report and is not followed.
+     */
+    private Optional<Path> findActiveSimulationLog(long followStart) throws IOException {
+        if (!Files.isDirectory(gatlingDir)) {
+            return Optional.empty();
+        }
+        List<Path> logs;
+        try (Stream<Path> stream = Files.list(gatlingDir)) {
+            logs = stream
+                .filter(Files::isDirectory)
+                .map(dir -> dir.resolve("simulation.log"))
+                .filter(Files::isRegularFile)
+                .toList();
+        }
+        return logs.stream()
+            .filter(log -> lastModified(log) >= followStart
+                || (!runFinished(log) && lastModified(log) >= followStart - IDLE_TIMEOUT_MILLIS))
+            .max(Comparator.comparingLong(LiveReportFollower::lastModified));
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static boolean runFinished(Path logFile) {
+        // Gatling writes the HTML report once the simulation has completed
+        return Files.exists(logFile.resolveSibling("index.html"));
+    }
+}
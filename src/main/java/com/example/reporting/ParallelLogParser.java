@@ -0,0 +1,74 @@
+package com.example.reporting;
+
+import com.example.reporting.GatlingJUnitReportGenerator.TestResults;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Parses a simulation.log on a fork-join pool. The file is recursively halved into byte ranges;
+ * each leaf range owns the lines that start inside it, so ranges never need to agree on where a
+ * line break falls. Partial results are merged left-to-right, which keeps the merged result
+ * identical to a sequential parse.
+ */
+class ParallelLogParser {
+
+    private static final long MIN_CHUNK_BYTES = 1024 * 1024;
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    private final ForkJoinPool pool;
+
+    ParallelLogParser(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    TestResults parse(Path logFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkBytes = Math.max(MIN_CHUNK_BYTES, size / ((long) pool.getParallelism() * CHUNKS_PER_THREAD));
+            return pool.invoke(new ChunkTask(channel, 0, size, chunkBytes));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ChunkTask extends RecursiveTask<TestResults> {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final long chunkBytes;
+
+        ChunkTask(FileChannel channel, long start, long end, long chunkBytes) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.chunkBytes = chunkBytes;
+        }
+
+        @Override
+        protected TestResults compute() {
+            if (end - start <= chunkBytes) {
+                try {
+                    return SimulationLogTokenizer.parseRange(channel, start, end);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+
+            long mid = start + (end - start) / 2;
+            ChunkTask left = new ChunkTask(channel, start, mid, chunkBytes);
+            ChunkTask right = new ChunkTask(channel, mid, end, chunkBytes);
+            right.fork();
+            TestResults results = left.compute();
+            results.merge(right.join());
+            return results;
+        }
+    }
+}
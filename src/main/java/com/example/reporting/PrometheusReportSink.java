@@ -0,0 +1,113 @@
+package com.example.reporting;
+
+import com.example.reporting.GatlingJUnitReportGenerator.RequestSummary;
+import com.example.reporting.GatlingJUnitReportGenerator.TestResults;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Map;
+
+/**
+ * Writes the aggregates in the Prometheus text exposition format, ready for the node exporter's
+ * textfile collector or a Pushgateway. Latencies are reported in seconds, as Prometheus expects.
+ */
+public class PrometheusReportSink implements ReportSink {
+
+    private final double[] percentiles;
+
+    public PrometheusReportSink(double[] percentiles) {
+        this.percentiles = percentiles;
+    }
+
+    @Override
+    public String fileSuffix() {
+        return ".prom";
+    }
+
+    @Override
+    public void write(TestResults results, Writer out) throws IOException {
+        String simulation = "simulation=\"" + escape(String.valueOf(results.getSimulationName())) + "\"";
+
+        header(out, "gatling_requests_total", "counter", "Requests completed, by request name and status.");
+        for (Map.Entry<String, RequestSummary> entry : results.getRequestSummaries().entrySet()) {
+            String labels = simulation + ",request=\"" + escape(entry.getKey()) + "\"";
+            RequestSummary summary = entry.getValue();
+            sample(out, "gatling_requests_total", labels + ",status=\"ok\"", summary.getCount() - summary.getFailures());
+            sample(out, "gatling_requests_total", labels + ",status=\"ko\"", summary.getFailures());
+        }
+
+        writeSummary(out, results, simulation, "gatling_response_time_seconds", "Response time quantiles.", false);
+        if (GatlingJUnitReportGenerator.EXPECTED_INTERVAL_MILLIS > 0) {
+            writeSummary(out, results, simulation, "gatling_corrected_response_time_seconds",
+                "Response time quantiles corrected for coordinated omission.", true);
+        }
+
+        header(out, "gatling_response_time_max_seconds", "gauge", "Slowest response.");
+        for (Map.Entry<String, RequestSummary> entry : results.getRequestSummaries().entrySet()) {
+            sample(out, "gatling_response_time_max_seconds", simulation + ",request=\"" + escape(entry.getKey()) + "\"",
+                entry.getValue().getMaxTimeMs() / 1000.0);
+        }
+
+        header(out, "gatling_run_duration_seconds", "gauge", "Duration of the run.");
+        sample(out, "gatling_run_duration_seconds", simulation, results.getDuration());
+        header(out, "gatling_requests_per_second", "gauge", "Mean throughput over the run.");
+        sample(out, "gatling_requests_per_second", simulation,
+            results.getDuration() > 0 ? results.getTotalRequests() / results.getDuration() : 0);
+
+        ConcurrencyTimeline concurrency = results.concurrency;
+        if (concurrency != null) {
+            if (concurrency.hasUserRecords) {
+                header(out, "gatling_active_users_max", "gauge", "Most virtual users active in one window.");
+                sample(out, "gatling_active_users_max", simulation, concurrency.maxActiveUsers);
+            }
+            header(out, "gatling_in_flight_requests_max", "gauge", "Highest average number of requests in flight in one window.");
+            sample(out, "gatling_in_flight_requests_max", simulation, concurrency.maxInFlight);
+            if (concurrency.knee != null) {
+                header(out, "gatling_saturation_knee_requests_per_second", "gauge", "Best throughput below the saturation knee.");
+                sample(out, "gatling_saturation_knee_requests_per_second", simulation, concurrency.kneeRequestsPerSecond);
+            }
+        }
+    }
+
+    private void writeSummary(Writer out, TestResults results, String simulation, String metric, String help,
+                              boolean corrected) throws IOException {
+        header(out, metric, "summary", help);
+        for (Map.Entry<String, RequestSummary> entry : results.getRequestSummaries().entrySet()) {
+            String labels = simulation + ",request=\"" + escape(entry.getKey()) + "\"";
+            RequestSummary summary = entry.getValue();
+            LatencyHistogram histogram = corrected ? summary.getCorrectedHistogram() : summary.getHistogram();
+            for (double percentile : percentiles) {
+                sample(out, metric, labels + ",quantile=\"" + quantile(percentile) + "\"",
+                    histogram.valueAtPercentile(percentile) / 1000.0);
+            }
+            // The corrected sum includes the back-filled values, so it pairs with the corrected count
+            sample(out, metric + "_sum", labels,
+                (corrected ? histogram.getTotalValue() : summary.getTotalTimeMs()) / 1000.0);
+            sample(out, metric + "_count", labels, histogram.getTotalCount());
+        }
+    }
+
+    private static void header(Writer out, String metric, String type, String help) throws IOException {
+        out.write("# HELP " + metric + " " + help + "\n");
+        out.write("# TYPE " + metric + " " + type + "\n");
+    }
+
+    private static void sample(Writer out, String metric, String labels, double value) throws IOException {
+        out.write(metric + "{" + labels + "} " + formatValue(value) + "\n");
+    }
+
+    private static String formatValue(double value) {
+        return value == Math.rint(value) && Math.abs(value) < 1e15
+            ? String.valueOf((long) value)
+            : String.valueOf(value);
+    }
+
+    private static String quantile(double percentile) {
+        return BigDecimal.valueOf(percentile).movePointLeft(2).stripTrailingZeros().toPlainString();
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
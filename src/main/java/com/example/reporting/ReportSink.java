@@ -0,0 +1,25 @@
+package com.example.reporting;
+
+import com.example.reporting.GatlingJUnitReportGenerator.TestResults;
+
+import java.io.Writer;
+
+/**
+ * An output format for the aggregated results of one run. A single parse of simulation.log is
+ * fanned out to every sink listed in {@code gatling.report.sinks}; each sink writes one file
+ * named after the report with its {@link #fileSuffix()} appended, e.g.
+ * {@code TEST-javaapitestsimulation.json}.
+ * <p>
+ * Besides the built-in names ({@code junit}, {@code windows}, {@code json}, {@code csv},
+ * {@code prometheus}), a sink can be given by class name. It needs a public constructor taking
+ * the configured percentile levels as a {@code double[]}, or a public no-argument constructor.
+ */
+public interface ReportSink {
+
+    /**
+     * Suffix appended to the report base name, including the extension.
+     */
+    String fileSuffix();
+
+    void write(TestResults results, Writer out) throws Exception;
+}
@@ -0,0 +1,296 @@
+package com.example.reporting;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Declarative performance gates, read from a JSON file so they can be tuned without recompiling.
+ * Objectives are declared per simulation (by class name, {@code "*"} for all) for the run as a
+ * whole and per request name ({@code "*"} for every request); more specific entries override
+ * individual fields of the wildcard ones.
+ *
+ * <pre>
+ * {
+ *   "simulations": {
+ *     "*": { "requests": { "*": { "maxResponseTimeMs": 5000, "minSuccessRatePercent": 90 } } },
+ *     "simulations.JavaApiTestSimulation": {
+ *       "run": { "minRequestsPerSecond": 5, "maxErrorPercent": 2,
+ *                "windows": [ { "percentile": 95, "maxMs": 800, "maxBreachingWindowsPercent": 5 } ] },
+ *       "requests": { "Health Check": { "percentiles": { "95": 200, "99.9": 1000 }, "corrected": true } }
+ *     }
+ *   }
+ * }
+ * </pre>
+ *
+ * Every objective is evaluated against the streaming aggregates and becomes its own JUnit test case.
+ */
+public class ServiceLevelObjectives {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String WILDCARD = "*";
+
+    /** The gates the report used before objectives were configurable. */
+    static final Scope DEFAULT_REQUEST_SCOPE = new Scope(5000L, 90.0, null, null, null, null, null);
+
+    record File(Map<String, SimulationObjectives> simulations) {
+    }
+
+    record SimulationObjectives(Scope run, Map<String, Scope> requests) {
+    }
+
+    /**
+     * Objectives for one subject: the whole run or one request name. Absent fields are not checked.
+     *
+     * @param percentiles map of percentile level to the maximum response time in ms at that level
+     * @param corrected   evaluate percentiles on the coordinated-omission corrected histogram
+     */
+    record Scope(Long maxResponseTimeMs, Double minSuccessRatePercent, Map<String, Long> percentiles, Boolean corrected,
+                 Double minRequestsPerSecond, Double maxErrorPercent, List<WindowRule> windows) {
+
+        Scope overriddenBy(Scope other) {
+            if (other == null) {
+                return this;
+            }
+            return new Scope(
+                other.maxResponseTimeMs != null ? other.maxResponseTimeMs : maxResponseTimeMs,
+                other.minSuccessRatePercent != null ? other.minSuccessRatePercent : minSuccessRatePercent,
+                other.percentiles != null ? other.percentiles : percentiles,
+                other.corrected != null ? other.corrected : corrected,
+                other.minRequestsPerSecond != null ? other.minRequestsPerSecond : minRequestsPerSecond,
+                other.maxErrorPercent != null ? other.maxErrorPercent : maxErrorPercent,
+                other.windows != null ? other.windows : windows);
+        }
+    }
+
+    /**
+     * A limit every time window must meet; up to {@code maxBreachingWindowsPercent} of the windows may miss it.
+     */
+    record WindowRule(Double percentile, Long maxMs, Long maxMeanResponseTimeMs, Double maxErrorPercent,
+                      Double maxBreachingWindowsPercent) {
+    }
+
+    /**
+     * Measured figures of the subject an objective is evaluated against.
+     *
+     * @param windows windows with at least one completed request
+     */
+    record Subject(String name, long count, long failures, long maxTimeMs, double durationSeconds,
+                   LatencyHistogram histogram, LatencyHistogram correctedHistogram,
+                   List<WindowedMetrics.Window> windows, long windowMillis) {
+    }
+
+    /**
+     * One evaluated objective.
+     *
+     * @param failureMessage null when the objective was met
+     */
+    record Outcome(String testName, String description, String failureMessage) {
+
+        boolean failed() {
+            return failureMessage != null;
+        }
+    }
+
+    private final Map<String, SimulationObjectives> simulations;
+
+    private ServiceLevelObjectives(Map<String, SimulationObjectives> simulations) {
+        this.simulations = simulations;
+    }
+
+    /**
+     * Read objectives from {@code file}, or fall back to the built-in defaults (max response time
+     * under 5000 ms and success rate of at least 90% for every request) when it does not exist.
+     */
+    public static ServiceLevelObjectives load(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return defaults();
+        }
+        File parsed = MAPPER.readValue(file.toFile(), File.class);
+        Map<String, SimulationObjectives> simulations = parsed.simulations() != null ? parsed.simulations() : Map.of();
+        for (Map.Entry<String, SimulationObjectives> simulation : simulations.entrySet()) {
+            Map<String, Scope> requests = simulation.getValue().requests();
+            if (requests == null) {
+                continue;
+            }
+            for (Map.Entry<String, Scope> request : requests.entrySet()) {
+                List<WindowRule> windows = request.getValue().windows();
+                if (windows != null && windows.stream().anyMatch(rule -> rule.percentile() != null)) {
+                    // Per-request windows keep no histograms; only the run timeline does
+                    throw new IllegalArgumentException(file + ": window percentile rules are only supported for the run, "
+                        + "not for request '" + request.getKey() + "' of " + simulation.getKey());
+                }
+            }
+        }
+        return new ServiceLevelObjectives(simulations);
+    }
+
+    static ServiceLevelObjectives defaults() {
+        return new ServiceLevelObjectives(
+            Map.of(WILDCARD, new SimulationObjectives(null, Map.of(WILDCARD, DEFAULT_REQUEST_SCOPE))));
+    }
+
+    /**
+     * Evaluate the objectives that apply to {@code requestName}, in a stable order.
+     */
+    List<Outcome> evaluateRequest(String simulationName, String requestName, Subject subject) {
+        Scope scope = resolve(simulationName, objectives -> objectives.requests() == null ? null
+            : merge(objectives.requests().get(WILDCARD), objectives.requests().get(requestName)));
+        return evaluate(scope, subject);
+    }
+
+    /**
+     * Evaluate the run-level objectives of the simulation.
+     */
+    List<Outcome> evaluateRun(String simulationName, Subject subject) {
+        return evaluate(resolve(simulationName, SimulationObjectives::run), subject);
+    }
+
+    private Scope resolve(String simulationName, Function<SimulationObjectives, Scope> select) {
+        SimulationObjectives wildcard = simulations.get(WILDCARD);
+        SimulationObjectives specific = simulationName != null ? simulations.get(simulationName) : null;
+        return merge(wildcard != null ? select.apply(wildcard) : null, specific != null ? select.apply(specific) : null);
+    }
+
+    private static Scope merge(Scope general, Scope specific) {
+        return general == null ? specific : general.overriddenBy(specific);
+    }
+
+    private static List<Outcome> evaluate(Scope scope, Subject subject) {
+        List<Outcome> outcomes = new ArrayList<>();
+        if (scope == null) {
+            return outcomes;
+        }
+        String name = subject.name();
+
+        if (scope.maxResponseTimeMs() != null) {
+            long limit = scope.maxResponseTimeMs();
+            outcomes.add(new Outcome(name + "_Response_Time_Under_" + limit + "ms",
+                "Max Response Time < " + limit + "ms",
+                subject.maxTimeMs() >= limit
+                    ? String.format(Locale.ROOT, "Max response time %dms exceeds %dms threshold", subject.maxTimeMs(), limit)
+                    : null));
+        }
+
+        if (scope.minSuccessRatePercent() != null) {
+            double limit = scope.minSuccessRatePercent();
+            double successRate = subject.count() == 0 ? 100 : (subject.count() - subject.failures()) * 100.0 / subject.count();
+            outcomes.add(new Outcome(name + "_Success_Rate_Above_" + label(limit) + "_Percent",
+                "Success Rate > " + format(limit) + "%",
+                successRate < limit
+                    ? String.format(Locale.ROOT, "Success rate %.1f%% is below %s%% threshold", successRate, format(limit))
+                    : null));
+        }
+
+        if (scope.percentiles() != null) {
+            boolean corrected = Boolean.TRUE.equals(scope.corrected()) && subject.correctedHistogram() != null;
+            LatencyHistogram histogram = corrected ? subject.correctedHistogram() : subject.histogram();
+            String kind = corrected ? " (corrected)" : "";
+            scope.percentiles().entrySet().stream()
+                .sorted(Comparator.comparingDouble(entry -> Double.parseDouble(entry.getKey())))
+                .forEach(entry -> {
+                    double percentile = Double.parseDouble(entry.getKey());
+                    long limit = entry.getValue();
+                    long value = histogram.valueAtPercentile(percentile);
+                    String level = GatlingJUnitReportGenerator.percentileLabel(percentile);
+                    outcomes.add(new Outcome(name + "_" + level + "_Under_" + limit + "ms",
+                        level.replace('_', '.') + kind + " < " + limit + "ms",
+                        value >= limit
+                            ? String.format(Locale.ROOT, "%s%s response time %dms exceeds %dms threshold", level.replace('_', '.'), kind, value, limit)
+                            : null));
+                });
+        }
+
+        if (scope.minRequestsPerSecond() != null) {
+            double limit = scope.minRequestsPerSecond();
+            double throughput = subject.durationSeconds() > 0 ? subject.count() / subject.durationSeconds() : 0;
+            outcomes.add(new Outcome(name + "_Throughput_Above_" + label(limit) + "_rps",
+                "Throughput >= " + format(limit) + " req/s",
+                throughput < limit
+                    ? String.format(Locale.ROOT, "Throughput %.2f req/s is below %s req/s threshold", throughput, format(limit))
+                    : null));
+        }
+
+        if (scope.maxErrorPercent() != null) {
+            double budget = scope.maxErrorPercent();
+            double errorPercent = subject.count() == 0 ? 0 : subject.failures() * 100.0 / subject.count();
+            String failure = null;
+            if (errorPercent > budget) {
+                // A zero budget has no share to report, any failure exceeds it
+                failure = budget > 0
+                    ? String.format(Locale.ROOT, "Error rate %.2f%% exceeds the %s%% error budget (%.0f%% of budget used)",
+                        errorPercent, format(budget), errorPercent * 100 / budget)
+                    : String.format(Locale.ROOT, "Error rate %.2f%% (%d failed requests) where no errors are allowed",
+                        errorPercent, subject.failures());
+            }
+            outcomes.add(new Outcome(name + "_Error_Budget_" + label(budget) + "_Percent",
+                "Errors <= " + format(budget) + "%", failure));
+        }
+
+        if (scope.windows() != null) {
+            for (WindowRule rule : scope.windows()) {
+                outcomes.add(evaluateWindows(rule, subject));
+            }
+        }
+        return outcomes;
+    }
+
+    private static Outcome evaluateWindows(WindowRule rule, Subject subject) {
+        List<String> limits = new ArrayList<>();
+        if (rule.percentile() != null && rule.maxMs() != null) {
+            limits.add(GatlingJUnitReportGenerator.percentileLabel(rule.percentile()) + "_Under_" + rule.maxMs() + "ms");
+        }
+        if (rule.maxMeanResponseTimeMs() != null) {
+            limits.add("Mean_Under_" + rule.maxMeanResponseTimeMs() + "ms");
+        }
+        if (rule.maxErrorPercent() != null) {
+            limits.add("Errors_Under_" + label(rule.maxErrorPercent()) + "_Percent");
+        }
+        if (limits.isEmpty()) {
+            throw new IllegalArgumentException("Window rule for " + subject.name() + " sets no limit");
+        }
+
+        int breaching = 0;
+        long firstBreach = Long.MIN_VALUE;
+        for (WindowedMetrics.Window window : subject.windows()) {
+            boolean breached = (rule.percentile() != null && rule.maxMs() != null && window.histogram != null
+                    && window.histogram.valueAtPercentile(rule.percentile()) >= rule.maxMs())
+                || (rule.maxMeanResponseTimeMs() != null && window.averageMillis() >= rule.maxMeanResponseTimeMs())
+                || (rule.maxErrorPercent() != null && window.failures * 100.0 / window.count > rule.maxErrorPercent());
+            if (breached) {
+                breaching++;
+                if (firstBreach == Long.MIN_VALUE) {
+                    firstBreach = window.startMillis;
+                }
+            }
+        }
+
+        double allowedPercent = rule.maxBreachingWindowsPercent() != null ? rule.maxBreachingWindowsPercent() : 0;
+        double breachingPercent = subject.windows().isEmpty() ? 0 : breaching * 100.0 / subject.windows().size();
+        String limitText = String.join("_", limits);
+        return new Outcome(subject.name() + "_Windows_" + limitText,
+            "Every " + subject.windowMillis() / 1000.0 + "s window: " + limitText.replace('_', ' '),
+            breachingPercent > allowedPercent
+                ? String.format(Locale.ROOT, "%d of %d windows (%.1f%%) breach %s, %s%% allowed; first breach at %tT",
+                    breaching, subject.windows().size(), breachingPercent, limitText.replace('_', ' '),
+                    format(allowedPercent), firstBreach)
+                : null);
+    }
+
+    /** Number as written in test names: 90 stays "90", 99.5 becomes "99_5". */
+    private static String label(double value) {
+        return format(value).replace('.', '_');
+    }
+
+    private static String format(double value) {
+        return value == Math.rint(value) ? String.valueOf((long) value) : String.valueOf(value);
+    }
+}
@@ -0,0 +1,433 @@
+package com.example.reporting;
+
+import com.example.reporting.GatlingJUnitReportGenerator.TestResults;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary, columnar archive of the REQUEST and USER records of one run, so later analyses
+ * can rebuild results without re-parsing the text simulation.log.
+ *
+ * <pre>
+ * file    := "GLAR" version:int(2) block* endMarker:int(-1) trailer
+ * block   := recordCount:int userEventCount:int byteLength:int newNameCount:int (nameLength:int utf8)*
+ *            nameIds:varint* starts:zigzag-varint-delta* durations:zigzag-varint* statusBitmap
+ *            userEventTimes:zigzag-varint-delta* userStartBitmap
+ * trailer := hasSimulationName:byte [nameLength:int utf8] runStart:long recordCount:long
+ * </pre>
+ *
+ * Request names are dictionary encoded (ids are global, new names are declared in the block that
+ * first uses them), start timestamps are delta encoded against the previous record, end timestamps
+ * are stored as durations, and the OK/KO status is one bit per record. USER start and end records
+ * are kept as delta encoded timestamps with one bit per event telling starts from ends. Blocks are
+ * memory-mapped one at a time when reading, so files larger than 2 GB are fine. Archives of other
+ * versions are rejected, and truncated ones fail with an IOException; rebuild them from the simulation.log.
+ */
+public final class SimulationLogArchive {
+
+    static final String FILE_NAME = "simulation.glar";
+    private static final int MAGIC = 0x474C4152; // "GLAR"
+    private static final int VERSION = 2;
+    private static final int RECORDS_PER_BLOCK = 64 * 1024;
+    private static final int BLOCK_HEADER_BYTES = 12;
+    private static final int END_MARKER = -1;
+
+    private SimulationLogArchive() {
+    }
+
+    /**
+     * Receives the REQUEST records of an archive in their original order, and its USER records,
+     * which are in order among themselves but not relative to requests.
+     */
+    public interface RequestVisitor {
+        void onRequest(String requestName, long startTime, long endTime, boolean ok);
+
+        default void onUserStart(long timestamp) {
+        }
+
+        default void onUserEnd(long timestamp) {
+        }
+    }
+
+    /**
+     * Rebuild the full results of a run from its archive.
+     */
+    public static TestResults read(Path archiveFile) throws IOException {
+        TestResults results = new TestResults();
+        Trailer trailer = forEachRequest(archiveFile, new RequestVisitor() {
+            @Override
+            public void onRequest(String requestName, long startTime, long endTime, boolean ok) {
+                results.recordRequest(requestName, startTime, endTime, ok);
+            }
+
+            @Override
+            public void onUserStart(long timestamp) {
+                results.recordUserStart(timestamp);
+            }
+
+            @Override
+            public void onUserEnd(long timestamp) {
+                results.recordUserEnd(timestamp);
+            }
+        });
+        results.simulationName = trailer.simulationName;
+        results.startTime = trailer.runStart == Long.MIN_VALUE ? null : trailer.runStart;
+        results.finish();
+        return results;
+    }
+
+    /**
+     * Visit every request record of an archive.
+     */
+    public static Trailer forEachRequest(Path archiveFile, RequestVisitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(archiveFile, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() != 8 || header.getInt() != MAGIC) {
+                throw new IOException("Not a simulation log archive: " + archiveFile);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported simulation log archive version " + version + ": " + archiveFile);
+            }
+
+            List<String> names = new ArrayList<>();
+            long size = channel.size();
+            long position = 8;
+            while (true) {
+                ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES);
+                channel.read(blockHeader, position);
+                blockHeader.flip();
+                if (blockHeader.remaining() < 4) {
+                    throw truncated(archiveFile);
+                }
+                int recordCount = blockHeader.getInt();
+                if (recordCount == END_MARKER) {
+                    break;
+                }
+                if (blockHeader.remaining() != BLOCK_HEADER_BYTES - 4) {
+                    throw truncated(archiveFile);
+                }
+                int userEventCount = blockHeader.getInt();
+                int byteLength = blockHeader.getInt();
+                // Every record and user event takes at least one byte, so the counts can't exceed the block length
+                if (byteLength < 0 || byteLength > size - position - BLOCK_HEADER_BYTES
+                        || recordCount < 0 || recordCount > byteLength
+                        || userEventCount < 0 || userEventCount > byteLength) {
+                    throw truncated(archiveFile);
+                }
+                MappedByteBuffer block = channel.map(FileChannel.MapMode.READ_ONLY, position + BLOCK_HEADER_BYTES, byteLength);
+                try {
+                    readBlock(block, recordCount, userEventCount, names, visitor, archiveFile);
+                } catch (BufferUnderflowException e) {
+                    throw truncated(archiveFile);
+                }
+                position += BLOCK_HEADER_BYTES + byteLength;
+            }
+            return readTrailer(channel, position + 4, archiveFile);
+        }
+    }
+
+    private static IOException truncated(Path archiveFile) {
+        return new IOException("Truncated archive " + archiveFile);
+    }
+
+    private static void readBlock(ByteBuffer block, int recordCount, int userEventCount, List<String> names,
+                                  RequestVisitor visitor, Path archiveFile) throws IOException {
+        int newNames = block.getInt();
+        for (int i = 0; i < newNames; i++) {
+            int nameLength = block.getInt();
+            if (nameLength < 0 || nameLength > block.remaining()) {
+                throw truncated(archiveFile);
+            }
+            byte[] name = new byte[nameLength];
+            block.get(name);
+            names.add(new String(name, StandardCharsets.UTF_8));
+        }
+
+        // Columns are laid out one after another; decode each into a primitive array
+        int[] nameIds = new int[recordCount];
+        for (int i = 0; i < recordCount; i++) {
+            long nameId = readVarLong(block);
+            if (nameId < 0 || nameId >= names.size()) {
+                throw truncated(archiveFile);
+            }
+            nameIds[i] = (int) nameId;
+        }
+        long[] starts = new long[recordCount];
+        long previousStart = 0;
+        for (int i = 0; i < recordCount; i++) {
+            previousStart += zigZagDecode(readVarLong(block));
+            starts[i] = previousStart;
+        }
+        long[] durations = new long[recordCount];
+        for (int i = 0; i < recordCount; i++) {
+            durations[i] = zigZagDecode(readVarLong(block));
+        }
+        byte[] statusBitmap = new byte[(recordCount + 7) / 8];
+        block.get(statusBitmap);
+
+        for (int i = 0; i < recordCount; i++) {
+            boolean ok = (statusBitmap[i >>> 3] & (1 << (i & 7))) != 0;
+            visitor.onRequest(names.get(nameIds[i]), starts[i], starts[i] + durations[i], ok);
+        }
+
+        long[] userEventTimes = new long[userEventCount];
+        long previousTime = 0;
+        for (int i = 0; i < userEventCount; i++) {
+            previousTime += zigZagDecode(readVarLong(block));
+            userEventTimes[i] = previousTime;
+        }
+        byte[] userStartBitmap = new byte[(userEventCount + 7) / 8];
+        block.get(userStartBitmap);
+        for (int i = 0; i < userEventCount; i++) {
+            if ((userStartBitmap[i >>> 3] & (1 << (i & 7))) != 0) {
+                visitor.onUserStart(userEventTimes[i]);
+            } else {
+                visitor.onUserEnd(userEventTimes[i]);
+            }
+        }
+    }
+
+    private static Trailer readTrailer(FileChannel channel, long position, Path archiveFile) throws IOException {
+        long length = channel.size() - position;
+        // hasSimulationName, runStart and recordCount, then at most a name length and the name itself
+        if (length < 17 || length > Integer.MAX_VALUE) {
+            throw truncated(archiveFile);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        channel.read(buffer, position);
+        buffer.flip();
+        String simulationName = null;
+        if (buffer.get() != 0) {
+            int nameLength = buffer.getInt();
+            if (nameLength < 0 || nameLength != buffer.remaining() - 16) {
+                throw truncated(archiveFile);
+            }
+            byte[] name = new byte[nameLength];
+            buffer.get(name);
+            simulationName = new String(name, StandardCharsets.UTF_8);
+        }
+        if (buffer.remaining() != 16) {
+            throw truncated(archiveFile);
+        }
+        return new Trailer(simulationName, buffer.getLong(), buffer.getLong());
+    }
+
+    public record Trailer(String simulationName, long runStart, long recordCount) {
+    }
+
+    /**
+     * Streams request and user records into an archive, buffering at most one block of columns in memory.
+     */
+    public static final class Writer implements Closeable, RequestVisitor {
+        private final Path archiveFile;
+        private final DataOutputStream out;
+        private final Map<String, Integer> nameIds = new HashMap<>();
+        private final List<byte[]> pendingNames = new ArrayList<>();
+
+        private final int[] blockNameIds = new int[RECORDS_PER_BLOCK];
+        private final long[] blockStarts = new long[RECORDS_PER_BLOCK];
+        private final long[] blockEnds = new long[RECORDS_PER_BLOCK];
+        private final byte[] blockStatus = new byte[RECORDS_PER_BLOCK / 8];
+        private final long[] blockUserEventTimes = new long[RECORDS_PER_BLOCK];
+        private final byte[] blockUserStarts = new byte[RECORDS_PER_BLOCK / 8];
+        private int blockSize = 0;
+        private int blockUserEvents = 0;
+        private long recordCount = 0;
+        private byte[] encoded = new byte[RECORDS_PER_BLOCK * 8];
+
+        private String simulationName;
+        private long runStart = Long.MIN_VALUE;
+
+        public Writer(Path archiveFile) throws IOException {
+            this.archiveFile = archiveFile;
+            this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(archiveFile), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+        }
+
+        public void setRun(String simulationName, Long runStart) {
+            this.simulationName = simulationName;
+            this.runStart = runStart == null ? Long.MIN_VALUE : runStart;
+        }
+
+        @Override
+        public void onRequest(String requestName, long startTime, long endTime, boolean ok) {
+            Integer id = nameIds.get(requestName);
+            if (id == null) {
+                id = nameIds.size();
+                nameIds.put(requestName, id);
+                pendingNames.add(requestName.getBytes(StandardCharsets.UTF_8));
+            }
+            blockNameIds[blockSize] = id;
+            blockStarts[blockSize] = startTime;
+            blockEnds[blockSize] = endTime;
+            if (ok) {
+                blockStatus[blockSize >>> 3] |= (byte) (1 << (blockSize & 7));
+            }
+            blockSize++;
+            recordCount++;
+            if (blockSize == RECORDS_PER_BLOCK) {
+                flushFullBlock();
+            }
+        }
+
+        @Override
+        public void onUserStart(long timestamp) {
+            blockUserStarts[blockUserEvents >>> 3] |= (byte) (1 << (blockUserEvents & 7));
+            onUserEvent(timestamp);
+        }
+
+        @Override
+        public void onUserEnd(long timestamp) {
+            onUserEvent(timestamp);
+        }
+
+        private void onUserEvent(long timestamp) {
+            blockUserEventTimes[blockUserEvents++] = timestamp;
+            if (blockUserEvents == RECORDS_PER_BLOCK) {
+                flushFullBlock();
+            }
+        }
+
+        private void flushFullBlock() {
+            try {
+                flushBlock();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to write " + archiveFile, e);
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (blockSize == 0 && blockUserEvents == 0) {
+                return;
+            }
+            int length = 0;
+            length = putInt(length, pendingNames.size());
+            for (byte[] name : pendingNames) {
+                ensureEncodedCapacity(length + 4 + name.length);
+                length = putInt(length, name.length);
+                System.arraycopy(name, 0, encoded, length, name.length);
+                length += name.length;
+            }
+            pendingNames.clear();
+
+            // Worst case of 10 bytes per varint for each of the four columns, plus the bitmaps
+            ensureEncodedCapacity(length + blockSize * 30 + blockStatus.length + blockUserEvents * 10 + blockUserStarts.length);
+            for (int i = 0; i < blockSize; i++) {
+                length = putVarLong(length, blockNameIds[i]);
+            }
+            long previousStart = 0;
+            for (int i = 0; i < blockSize; i++) {
+                length = putVarLong(length, zigZagEncode(blockStarts[i] - previousStart));
+                previousStart = blockStarts[i];
+            }
+            for (int i = 0; i < blockSize; i++) {
+                length = putVarLong(length, zigZagEncode(blockEnds[i] - blockStarts[i]));
+            }
+            int bitmapLength = (blockSize + 7) / 8;
+            System.arraycopy(blockStatus, 0, encoded, length, bitmapLength);
+            length += bitmapLength;
+            long previousTime = 0;
+            for (int i = 0; i < blockUserEvents; i++) {
+                length = putVarLong(length, zigZagEncode(blockUserEventTimes[i] - previousTime));
+                previousTime = blockUserEventTimes[i];
+            }
+            int userBitmapLength = (blockUserEvents + 7) / 8;
+            System.arraycopy(blockUserStarts, 0, encoded, length, userBitmapLength);
+            length += userBitmapLength;
+
+            out.writeInt(blockSize);
+            out.writeInt(blockUserEvents);
+            out.writeInt(length);
+            out.write(encoded, 0, length);
+
+            Arrays.fill(blockStatus, (byte) 0);
+            Arrays.fill(blockUserStarts, (byte) 0);
+            blockSize = 0;
+            blockUserEvents = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBlock();
+                out.writeInt(END_MARKER);
+                if (simulationName == null) {
+                    out.writeByte(0);
+                } else {
+                    byte[] name = simulationName.getBytes(StandardCharsets.UTF_8);
+                    out.writeByte(1);
+                    out.writeInt(name.length);
+                    out.write(name);
+                }
+                out.writeLong(runStart);
+                out.writeLong(recordCount);
+            } finally {
+                out.close();
+            }
+        }
+
+        private void ensureEncodedCapacity(int capacity) {
+            if (capacity > encoded.length) {
+                encoded = Arrays.copyOf(encoded, Math.max(capacity, encoded.length * 2));
+            }
+        }
+
+        private int putInt(int offset, int value) {
+            encoded[offset] = (byte) (value >>> 24);
+            encoded[offset + 1] = (byte) (value >>> 16);
+            encoded[offset + 2] = (byte) (value >>> 8);
+            encoded[offset + 3] = (byte) value;
+            return offset + 4;
+        }
+
+        private int putVarLong(int offset, long value) {
+            while ((value & ~0x7FL) != 0) {
+                encoded[offset++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            encoded[offset++] = (byte) value;
+            return offset;
+        }
+    }
+
+    private static long readVarLong(ByteBuffer buffer) {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    private static long zigZagEncode(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long zigZagDecode(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
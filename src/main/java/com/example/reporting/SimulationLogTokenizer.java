@@ -0,0 +1,235 @@
+package com.example.reporting;
+
+import com.example.reporting.GatlingJUnitReportGenerator.TestResults;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Byte-level tokenizer for simulation.log RUN, REQUEST and USER records. Lines are scanned in place inside a reusable
+ * read buffer: tab-separated fields are tracked as offsets, record types are compared as bytes,
+ * timestamps are parsed from digits directly and request names are interned through a small
+ * lookup table, so steady-state parsing allocates nothing per record.
+ */
+final class SimulationLogTokenizer {
+
+    private static final int READ_BUFFER_BYTES = 1024 * 1024;
+    private static final int MAX_FIELDS = 6;
+
+    private static final byte[] RUN = "RUN".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] REQUEST = "REQUEST".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] USER = "USER".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] START = "START".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] END = "END".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] OK = "OK".getBytes(StandardCharsets.US_ASCII);
+
+    private final int[] fieldStarts = new int[MAX_FIELDS];
+    private final int[] fieldEnds = new int[MAX_FIELDS];
+    private final RequestNameTable names = new RequestNameTable();
+
+    /**
+     * Parse every line whose first byte lies in {@code [start, end)}. The last such line is read
+     * to completion even if it extends past {@code end}.
+     */
+    static TestResults parseRange(FileChannel channel, long start, long end) throws IOException {
+        return parseRange(channel, start, end, new TestResults());
+    }
+
+    static TestResults parseRange(FileChannel channel, long start, long end, TestResults results) throws IOException {
+        long lineStart = start == 0 ? 0 : nextLineStart(channel, start - 1);
+        if (lineStart >= end) {
+            return results;
+        }
+
+        SimulationLogTokenizer tokenizer = new SimulationLogTokenizer();
+        byte[] bytes = new byte[READ_BUFFER_BYTES];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long filePosition = lineStart;
+        int filled = 0;
+
+        while (true) {
+            if (filled == bytes.length) {
+                // A single line longer than the buffer
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+                buffer = ByteBuffer.wrap(bytes);
+            }
+            buffer.limit(bytes.length).position(filled);
+            int read = channel.read(buffer, filePosition);
+            if (read <= 0) {
+                break;
+            }
+            filePosition += read;
+            filled += read;
+
+            int lineBegin = 0;
+            for (int i = filled - read; i < filled; i++) {
+                if (bytes[i] == '\n') {
+                    tokenizer.tokenize(bytes, lineBegin, i, results);
+                    lineBegin = i + 1;
+                    // bytes[0] sits at file offset filePosition - filled
+                    if (filePosition - filled + lineBegin >= end) {
+                        return results;
+                    }
+                }
+            }
+
+            // Move the partial line to the front of the buffer
+            filled -= lineBegin;
+            System.arraycopy(bytes, lineBegin, bytes, 0, filled);
+        }
+
+        // Final line without a trailing newline
+        if (filled > 0) {
+            tokenizer.tokenize(bytes, 0, filled, results);
+        }
+        return results;
+    }
+
+    /**
+     * Tokenize one line held in {@code bytes[from, to)} and fold it into {@code results}.
+     */
+    void tokenize(byte[] bytes, int from, int to, TestResults results) {
+        if (to > from && bytes[to - 1] == '\r') {
+            to--;
+        }
+
+        int fields = 0;
+        int fieldStart = from;
+        for (int i = from; i <= to && fields < MAX_FIELDS; i++) {
+            if (i == to || bytes[i] == '\t') {
+                fieldStarts[fields] = fieldStart;
+                fieldEnds[fields] = i;
+                fields++;
+                fieldStart = i + 1;
+            }
+        }
+        if (fields < 3) return;
+
+        if (fieldEquals(bytes, 0, RUN)) {
+            // RUN	simulations.JavaApiTestSimulation	javaapitestsimulation	1758575836567	Performance Test Execution	3.11.5
+            if (fields >= 4) {
+                results.simulationName = new String(bytes, fieldStarts[1], fieldEnds[1] - fieldStarts[1], StandardCharsets.UTF_8);
+                results.startTime = parseLong(bytes, 3);
+            }
+        } else if (fieldEquals(bytes, 0, REQUEST)) {
+            // REQUEST		Health Check	1758575837624	1758575837633	OK
+            if (fields >= 6) {
+                String requestName = names.intern(bytes, fieldStarts[2], fieldEnds[2]);
+                long requestStart = parseLong(bytes, 3);
+                long requestEnd = parseLong(bytes, 4);
+                results.recordRequest(requestName, requestStart, requestEnd, fieldEquals(bytes, 5, OK));
+            }
+        } else if (fieldEquals(bytes, 0, USER)) {
+            // USER	Java API Test	START	1758575836600
+            if (fields >= 4) {
+                if (fieldEquals(bytes, 2, START)) {
+                    results.recordUserStart(parseLong(bytes, 3));
+                } else if (fieldEquals(bytes, 2, END)) {
+                    results.recordUserEnd(parseLong(bytes, 3));
+                }
+            }
+        }
+    }
+
+    private boolean fieldEquals(byte[] bytes, int field, byte[] expected) {
+        return Arrays.equals(bytes, fieldStarts[field], fieldEnds[field], expected, 0, expected.length);
+    }
+
+    private long parseLong(byte[] bytes, int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        if (start == end) {
+            throw new NumberFormatException("Empty numeric field in simulation.log");
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \""
+                    + new String(bytes, start, end - start, StandardCharsets.UTF_8) + "\"");
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Offset just past the first newline at or after {@code position}, or the file size if there is none.
+     */
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long filePosition = position;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, filePosition);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return filePosition + i + 1;
+                }
+            }
+            filePosition += read;
+        }
+    }
+
+    /**
+     * Open-addressing table from request-name bytes to a single shared {@link String}. Simulations
+     * have a handful of request names, so after warm-up every lookup is a hash plus one byte compare.
+     */
+    static final class RequestNameTable {
+        private byte[][] keys = new byte[64][];
+        private String[] values = new String[64];
+        private int size = 0;
+
+        String intern(byte[] bytes, int from, int to) {
+            int mask = keys.length - 1;
+            int slot = hash(bytes, from, to) & mask;
+            while (keys[slot] != null) {
+                if (Arrays.equals(keys[slot], 0, keys[slot].length, bytes, from, to)) {
+                    return values[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            byte[] key = Arrays.copyOfRange(bytes, from, to);
+            String value = new String(key, StandardCharsets.UTF_8);
+            keys[slot] = key;
+            values[slot] = value;
+            if (++size * 2 > keys.length) {
+                resize();
+            }
+            return value;
+        }
+
+        private void resize() {
+            byte[][] oldKeys = keys;
+            String[] oldValues = values;
+            keys = new byte[oldKeys.length * 2][];
+            values = new String[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int slot = hash(oldKeys[i], 0, oldKeys[i].length) & mask;
+                    while (keys[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+
+        private static int hash(byte[] bytes, int from, int to) {
+            int h = 0x811c9dc5;
+            for (int i = from; i < to; i++) {
+                h = (h ^ bytes[i]) * 0x01000193;
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+}
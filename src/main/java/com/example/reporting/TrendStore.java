@@ -0,0 +1,275 @@
+package com.example.reporting;
+
+import com.example.reporting.GatlingJUnitReportGenerator.RequestSummary;
+import com.example.reporting.GatlingJUnitReportGenerator.TestResults;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * History of per-request summaries across runs, so trends can be read without opening old
+ * reports. Every simulation has a directory and every request name one file of
+ * fixed-size records sorted by run start time:
+ *
+ * <pre>
+ * file   := "GLTR" version:int nameLength:int utf8-name record*
+ * record := runStart count failures minMs maxMs totalTimeMs p50 p75 p90 p95 p99 p99.9   (12 longs)
+ * </pre>
+ *
+ * Because records have a fixed size, the runs before a given time are found by binary search and
+ * read with a single positioned read. A new run is appended. Reporting the same run again
+ * replaces its record and a run older than the newest stored one is inserted in order; both
+ * rewrite the file to a temporary file that is renamed over it, so a reader or a crash never
+ * sees a half-shifted file.
+ */
+public class TrendStore {
+
+    private static final int MAGIC = 0x474C5452; // "GLTR"
+    private static final int VERSION = 1;
+    static final double[] PERCENTILES = {50, 75, 90, 95, 99, 99.9};
+    static final int RECORD_BYTES = (6 + PERCENTILES.length) * Long.BYTES;
+    private static final String FILE_EXTENSION = ".trend";
+
+    // Batch mode reports runs of the same simulation in parallel; FileLock cannot arbitrate within one JVM
+    private static final Object APPEND_LOCK = new Object();
+
+    private final Path trendDir;
+
+    public TrendStore(Path trendDir) {
+        this.trendDir = trendDir;
+    }
+
+    public record Entry(long runStart, long count, long failures, long minMs, long maxMs, long totalTimeMs,
+                        long[] percentileValues) {
+
+        public double meanMs() {
+            return count == 0 ? 0 : totalTimeMs / (double) count;
+        }
+
+        public double errorPercent() {
+            return count == 0 ? 0 : failures * 100.0 / count;
+        }
+
+        /**
+         * Stored value at one of {@link TrendStore#PERCENTILES}.
+         */
+        public long percentile(double percentile) {
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                if (PERCENTILES[i] == percentile) {
+                    return percentileValues[i];
+                }
+            }
+            throw new IllegalArgumentException("Percentile not stored in trends: " + percentile);
+        }
+    }
+
+    /**
+     * Record the per-request summaries of a run. Runs without a RUN record have no start time
+     * to index them by and are skipped.
+     */
+    public void append(TestResults results) throws IOException {
+        if (results.getStartTime() == null) {
+            return;
+        }
+        synchronized (APPEND_LOCK) {
+            for (Map.Entry<String, RequestSummary> entry : results.getRequestSummaries().entrySet()) {
+                append(results.getSimulationName(), entry.getKey(), toEntry(results.getStartTime(), entry.getValue()));
+            }
+        }
+    }
+
+    private void append(String simulation, String request, Entry entry) throws IOException {
+        Path file = fileFor(simulation, request);
+        Files.createDirectories(file.getParent());
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                 StandardOpenOption.WRITE)) {
+            long headerBytes = channel.size() == 0 ? writeHeader(channel, request) : readHeaderBytes(channel, file);
+            long records = (channel.size() - headerBytes) / RECORD_BYTES;
+
+            long index = lowerBound(channel, headerBytes, records, entry.runStart());
+            if (index == records) {
+                channel.write(encode(entry), headerBytes + records * RECORD_BYTES);
+                return;
+            }
+            // The same run reported again replaces its record, an older run reported late goes before it
+            long kept = readRunStart(channel, headerBytes, index) == entry.runStart() ? index + 1 : index;
+            long splitOffset = headerBytes + index * RECORD_BYTES;
+            long tailOffset = headerBytes + kept * RECORD_BYTES;
+            try (FileChannel temp = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                transfer(channel, 0, splitOffset, temp);
+                temp.write(encode(entry));
+                transfer(channel, tailOffset, headerBytes + records * RECORD_BYTES - tailOffset, temp);
+            }
+        }
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void transfer(FileChannel from, long position, long count, FileChannel to) throws IOException {
+        long done = 0;
+        while (done < count) {
+            done += from.transferTo(position + done, count - done, to);
+        }
+    }
+
+    /**
+     * The last {@code limit} runs of a request started before {@code beforeRunStart}, oldest first.
+     */
+    public List<Entry> last(String simulation, String request, int limit, long beforeRunStart) throws IOException {
+        Path file = fileFor(simulation, request);
+        if (!Files.exists(file)) {
+            return List.of();
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long headerBytes = readHeaderBytes(channel, file);
+            long records = (channel.size() - headerBytes) / RECORD_BYTES;
+            long end = lowerBound(channel, headerBytes, records, beforeRunStart);
+            long start = Math.max(0, end - limit);
+            return read(channel, headerBytes, start, end);
+        }
+    }
+
+    /**
+     * Request names with stored trends for a simulation, sorted.
+     */
+    public List<String> requests(String simulation) throws IOException {
+        Path dir = trendDir.resolve(fileName(simulation));
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        TreeSet<String> names = new TreeSet<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(path -> path.toString().endsWith(FILE_EXTENSION)).toList()) {
+                names.add(readName(file));
+            }
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Simulations with stored trends. Directory names are sanitized simulation names, which for
+     * Java class names are the names themselves.
+     */
+    public List<String> simulations() throws IOException {
+        if (!Files.isDirectory(trendDir)) {
+            return List.of();
+        }
+        try (Stream<Path> dirs = Files.list(trendDir)) {
+            return dirs.filter(Files::isDirectory).map(dir -> dir.getFileName().toString()).sorted().toList();
+        }
+    }
+
+    private static Entry toEntry(long runStart, RequestSummary summary) {
+        long[] values = new long[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            values[i] = summary.getHistogram().valueAtPercentile(PERCENTILES[i]);
+        }
+        return new Entry(runStart, summary.getCount(), summary.getFailures(),
+            summary.getCount() == 0 ? 0 : summary.getMinTimeMs(), summary.getMaxTimeMs(), summary.getTotalTimeMs(), values);
+    }
+
+    private static ByteBuffer encode(Entry entry) {
+        ByteBuffer buffer = ByteBuffer.allocate(RECORD_BYTES);
+        buffer.putLong(entry.runStart()).putLong(entry.count()).putLong(entry.failures())
+            .putLong(entry.minMs()).putLong(entry.maxMs()).putLong(entry.totalTimeMs());
+        for (long value : entry.percentileValues()) {
+            buffer.putLong(value);
+        }
+        return buffer.flip();
+    }
+
+    private static List<Entry> read(FileChannel channel, long headerBytes, long from, long to) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) ((to - from) * RECORD_BYTES));
+        channel.read(buffer, headerBytes + from * RECORD_BYTES);
+        buffer.flip();
+        List<Entry> entries = new ArrayList<>((int) (to - from));
+        while (buffer.remaining() >= RECORD_BYTES) {
+            long runStart = buffer.getLong();
+            long count = buffer.getLong();
+            long failures = buffer.getLong();
+            long minMs = buffer.getLong();
+            long maxMs = buffer.getLong();
+            long totalTimeMs = buffer.getLong();
+            long[] values = new long[PERCENTILES.length];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = buffer.getLong();
+            }
+            entries.add(new Entry(runStart, count, failures, minMs, maxMs, totalTimeMs, values));
+        }
+        return entries;
+    }
+
+    /**
+     * Index of the first record whose run start is at or after {@code runStart}.
+     */
+    private static long lowerBound(FileChannel channel, long headerBytes, long records, long runStart) throws IOException {
+        long low = 0;
+        long high = records;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (readRunStart(channel, headerBytes, middle) < runStart) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long readRunStart(FileChannel channel, long headerBytes, long index) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        channel.read(buffer, headerBytes + index * RECORD_BYTES);
+        return buffer.flip().getLong();
+    }
+
+    private static long writeHeader(FileChannel channel, String request) throws IOException {
+        byte[] name = request.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer header = ByteBuffer.allocate(12 + name.length);
+        header.putInt(MAGIC).putInt(VERSION).putInt(name.length).put(name).flip();
+        channel.write(header, 0);
+        return 12 + name.length;
+    }
+
+    private static long readHeaderBytes(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(12);
+        channel.read(header, 0);
+        header.flip();
+        if (header.remaining() < 12 || header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a trend file: " + file);
+        }
+        return 12 + header.getInt();
+    }
+
+    private static String readName(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer name = ByteBuffer.allocate((int) readHeaderBytes(channel, file) - 12);
+            channel.read(name, 12);
+            return new String(name.array(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private Path fileFor(String simulation, String request) {
+        // Distinct names can sanitize to the same string, so the checksum keeps their files apart
+        CRC32 crc = new CRC32();
+        crc.update(request.getBytes(StandardCharsets.UTF_8));
+        return trendDir.resolve(fileName(simulation))
+            .resolve(fileName(request) + "-" + Long.toHexString(crc.getValue()) + FILE_EXTENSION);
+    }
+
+    private static String fileName(String name) {
+        return String.valueOf(name).replaceAll("[^A-Za-z0-9._-]", "_");
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.reporting;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Request metrics bucketed into fixed time windows by request end time. Windows are aligned to
+ * multiples of the window width, so partial results from different parts of a log merge exactly.
+ * When a run produces more than {@code maxWindows} windows, the width is doubled and neighbouring
+ * windows are combined, which bounds memory for arbitrarily long soak runs.
+ */
+public class WindowedMetrics {
+
+    static final int DEFAULT_MAX_WINDOWS = 1200;
+
+    /** Minimum number of non-empty windows before warm-up detection is attempted. */
+    private static final int MIN_WINDOWS_FOR_WARMUP_DETECTION = 10;
+
+    private final boolean withHistograms;
+    private final int maxWindows;
+    private long windowMillis;
+    private final TreeMap<Long, Window> windows = new TreeMap<>();
+
+    // The current window absorbs almost every record, so cache it to skip the map lookup
+    private long lastIndex = Long.MIN_VALUE;
+    private Window lastWindow;
+
+    public WindowedMetrics(long windowMillis, boolean withHistograms) {
+        this(windowMillis, withHistograms, DEFAULT_MAX_WINDOWS);
+    }
+
+    WindowedMetrics(long windowMillis, boolean withHistograms, int maxWindows) {
+        this.windowMillis = Math.max(1, windowMillis);
+        this.withHistograms = withHistograms;
+        this.maxWindows = maxWindows;
+    }
+
+    public void record(long endTime, long responseTimeMs, boolean ok) {
+        windowAt(endTime).record(responseTimeMs, ok);
+    }
+
+    /**
+     * Attribute the time a request was in flight to the windows it overlaps, so the average
+     * number of in-flight requests per window is {@code busyMillis / windowMillis}.
+     */
+    public void recordInFlight(long startTime, long endTime) {
+        long from = startTime;
+        while (from < endTime) {
+            Window window = windowAt(from);
+            long windowEnd = (Math.floorDiv(from, windowMillis) + 1) * windowMillis;
+            long to = Math.min(endTime, windowEnd);
+            window.busyMillis += to - from;
+            from = to;
+        }
+    }
+
+    public void recordUserStart(long timestamp) {
+        windowAt(timestamp).userStarts++;
+    }
+
+    public void recordUserEnd(long timestamp) {
+        windowAt(timestamp).userEnds++;
+    }
+
+    private Window windowAt(long timestamp) {
+        long index = Math.floorDiv(timestamp, windowMillis);
+        if (index != lastIndex) {
+            lastWindow = windows.get(index);
+            if (lastWindow == null) {
+                lastWindow = new Window(withHistograms);
+                windows.put(index, lastWindow);
+                if (windows.size() > maxWindows) {
+                    coarsen();
+                    index = Math.floorDiv(timestamp, windowMillis);
+                    lastWindow = windows.get(index);
+                }
+            }
+            lastIndex = index;
+        }
+        return lastWindow;
+    }
+
+    /**
+     * Fold metrics from another part of the same log into this one.
+     */
+    public void merge(WindowedMetrics other) {
+        while (windowMillis < other.windowMillis) {
+            coarsen();
+        }
+        long factor = windowMillis / other.windowMillis;
+        for (Map.Entry<Long, Window> entry : other.windows.entrySet()) {
+            long index = Math.floorDiv(entry.getKey(), factor);
+            windows.computeIfAbsent(index, k -> new Window(withHistograms)).merge(entry.getValue());
+        }
+        while (windows.size() > maxWindows) {
+            coarsen();
+        }
+        lastIndex = Long.MIN_VALUE;
+        lastWindow = null;
+    }
+
+    private void coarsen() {
+        TreeMap<Long, Window> merged = new TreeMap<>();
+        for (Map.Entry<Long, Window> entry : windows.entrySet()) {
+            Window existing = merged.putIfAbsent(Math.floorDiv(entry.getKey(), 2), entry.getValue());
+            if (existing != null) {
+                existing.merge(entry.getValue());
+            }
+        }
+        windows.clear();
+        windows.putAll(merged);
+        windowMillis *= 2;
+        lastIndex = Long.MIN_VALUE;
+        lastWindow = null;
+    }
+
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+
+    /**
+     * Non-empty windows in time order. Windows that only saw users start or stop, or requests still
+     * in flight, have a zero request count.
+     */
+    public List<Window> windows() {
+        List<Window> result = new ArrayList<>(windows.size());
+        for (Map.Entry<Long, Window> entry : windows.entrySet()) {
+            Window window = entry.getValue();
+            window.startMillis = entry.getKey() * windowMillis;
+            result.add(window);
+        }
+        return result;
+    }
+
+    /**
+     * Start of the steady state, detected with the MSER heuristic (Marginal Standard Error Rule)
+     * applied to per-window mean latencies: the truncation point that minimises the standard error
+     * of the remaining windows' mean. Truncation is limited to the first half of the run; the
+     * result is {@code Long.MIN_VALUE} when the run is too short to tell or shows no warm-up.
+     */
+    public long detectSteadyStateStart() {
+        List<Window> series = windows().stream().filter(window -> window.count > 0).toList();
+        int n = series.size();
+        if (n < MIN_WINDOWS_FOR_WARMUP_DETECTION) {
+            return Long.MIN_VALUE;
+        }
+
+        // Suffix sums of the window means and their squares
+        double[] sum = new double[n + 1];
+        double[] sumOfSquares = new double[n + 1];
+        for (int i = n - 1; i >= 0; i--) {
+            double mean = series.get(i).averageMillis();
+            sum[i] = sum[i + 1] + mean;
+            sumOfSquares[i] = sumOfSquares[i + 1] + mean * mean;
+        }
+
+        int bestTruncation = 0;
+        double bestStatistic = Double.MAX_VALUE;
+        for (int d = 0; d <= n / 2; d++) {
+            int remaining = n - d;
+            double mean = sum[d] / remaining;
+            double sumOfSquaredDeviations = Math.max(0, sumOfSquares[d] - remaining * mean * mean);
+            double statistic = sumOfSquaredDeviations / ((double) remaining * remaining);
+            if (statistic < bestStatistic) {
+                bestStatistic = statistic;
+                bestTruncation = d;
+            }
+        }
+        return bestTruncation == 0 ? Long.MIN_VALUE : series.get(bestTruncation).startMillis;
+    }
+
+    /**
+     * Totals over all windows starting at or after {@code fromMillis}.
+     */
+    public Window totalFrom(long fromMillis) {
+        Window total = new Window(withHistograms);
+        for (Window window : windows()) {
+            if (window.startMillis >= fromMillis) {
+                total.merge(window);
+            }
+        }
+        return total;
+    }
+
+    public static class Window {
+        long startMillis;
+        long count = 0;
+        long failures = 0;
+        long totalTimeMs = 0;
+        long minTimeMs = Long.MAX_VALUE;
+        long maxTimeMs = 0;
+        long busyMillis = 0;
+        long userStarts = 0;
+        long userEnds = 0;
+        final LatencyHistogram histogram;
+
+        Window(boolean withHistogram) {
+            this.histogram = withHistogram ? new LatencyHistogram() : null;
+        }
+
+        void record(long responseTimeMs, boolean ok) {
+            count++;
+            totalTimeMs += responseTimeMs;
+            minTimeMs = Math.min(minTimeMs, responseTimeMs);
+            maxTimeMs = Math.max(maxTimeMs, responseTimeMs);
+            if (!ok) {
+                failures++;
+            }
+            if (histogram != null) {
+                histogram.record(responseTimeMs);
+            }
+        }
+
+        void merge(Window other) {
+            count += other.count;
+            failures += other.failures;
+            totalTimeMs += other.totalTimeMs;
+            minTimeMs = Math.min(minTimeMs, other.minTimeMs);
+            maxTimeMs = Math.max(maxTimeMs, other.maxTimeMs);
+            busyMillis += other.busyMillis;
+            userStarts += other.userStarts;
+            userEnds += other.userEnds;
+            if (histogram != null && other.histogram != null) {
+                histogram.merge(other.histogram);
+            }
+        }
+
+        double averageMillis() {
+            return count == 0 ? 0 : totalTimeMs / (double) count;
+        }
+    }
+}
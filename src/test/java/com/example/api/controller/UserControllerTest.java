@@ -0,0 +1,329 @@
+package com.example.api.controller;
+
+import com.example.api.model.User;
+import com.example.api.service.MapUserStore;
+import com.example.api.service.UserService;
+import com.example.api.service.UserStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.ByteArrayInputStream;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+class UserControllerTest {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private UserService service;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        service = new UserService(new MapUserStore());
+        UserResponseCache cache = new UserResponseCache(service, objectMapper);
+        mvc = MockMvcBuilders.standaloneSetup(new UserController(service, cache, objectMapper)).build();
+    }
+
+    @Test
+    void cursorPagesCoverEveryUserOnce() throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            MvcResult result = mvc.perform(get("/api/users").param("limit", "3")
+                            .param("cursor", cursor != null ? cursor : "0"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string(HttpHeaders.ETAG, "\"10\""))
+                    .andReturn();
+            for (JsonNode user : json(result)) {
+                ids.add(user.get("id").asLong());
+            }
+            cursor = result.getResponse().getHeader(UserController.NEXT_CURSOR_HEADER);
+        } while (cursor != null);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), ids);
+        mvc.perform(get("/api/users").param("limit", "10"))
+                .andExpect(header().string(UserController.NEXT_CURSOR_HEADER, "10"));
+        mvc.perform(get("/api/users").param("limit", "1001")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void listingsTooLargeToCacheAreWrittenDirectly() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < UserResponseCache.MAX_CACHED_COLLECTION_SIZE; i++) {
+            users.add(new User(null, "User " + i, "user" + i + "@example.com", 30, "active"));
+        }
+        service.createUsers(users);
+
+        MvcResult result = mvc.perform(get("/api/users"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + service.getModificationCount() + "\""))
+                .andReturn();
+        JsonNode listed = json(result);
+        assertEquals(service.getUserCount(), listed.size());
+        for (int i = 0; i < listed.size(); i++) {
+            assertEquals(i + 1, listed.get(i).get("id").asLong());
+        }
+
+        result = mvc.perform(get("/api/users").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn();
+        assertEquals(listed, gunzip(result));
+
+        // The full listing only answers JSON, NDJSON without a cursor is still streamed
+        mvc.perform(get("/api/users").accept(NDJSON)).andExpect(request().asyncStarted());
+    }
+
+    @Test
+    void ndjsonSendsOneUserPerLine() throws Exception {
+        MvcResult started = mvc.perform(get("/api/users").accept(NDJSON).param("cursor", "7"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult result = mvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NDJSON))
+                .andReturn();
+
+        String[] lines = result.getResponse().getContentAsString().split("\n");
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(8 + i, objectMapper.readTree(lines[i]).get("id").asLong());
+        }
+    }
+
+    @Test
+    void conditionalRequestsUseVersionsAndModificationCounts() throws Exception {
+        mvc.perform(get("/api/users/1").header(HttpHeaders.IF_NONE_MATCH, "\"1\""))
+                .andExpect(status().isNotModified());
+        mvc.perform(get("/api/users").header(HttpHeaders.IF_NONE_MATCH, "W/\"10\""))
+                .andExpect(status().isNotModified());
+
+        String update = "{\"name\":\"John\",\"email\":\"john@example.com\",\"age\":31,\"status\":\"active\"}";
+        mvc.perform(put("/api/users/1").contentType(MediaType.APPLICATION_JSON).content(update)
+                        .header(HttpHeaders.IF_MATCH, "\"7\""))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(delete("/api/users/1").header(HttpHeaders.IF_MATCH, "\"7\""))
+                .andExpect(status().isPreconditionFailed());
+        String etag = mvc.perform(put("/api/users/1").contentType(MediaType.APPLICATION_JSON).content(update)
+                        .header(HttpHeaders.IF_MATCH, "\"1\""))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals("\"1\"", etag);
+
+        mvc.perform(get("/api/users/1").header(HttpHeaders.IF_NONE_MATCH, "\"1\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+        mvc.perform(get("/api/users/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mvc.perform(get("/api/users").header(HttpHeaders.IF_NONE_MATCH, "\"10\""))
+                .andExpect(status().isOk());
+
+        mvc.perform(put("/api/users/99").contentType(MediaType.APPLICATION_JSON).content(update)
+                        .header(HttpHeaders.IF_MATCH, "\"1\""))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(delete("/api/users/99").header(HttpHeaders.IF_MATCH, "*"))
+                .andExpect(status().isPreconditionFailed());
+        mvc.perform(delete("/api/users/99")).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void aWriteInProgressIsNotCoveredByCollectionETags() throws Exception {
+        // Holds a write after its compute function ran but before the store returns, which is
+        // when its user has a version but is not yet visible to readers
+        CountDownLatch computed = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        MapUserStore delegate = new MapUserStore();
+        UserStore gated = new UserStore() {
+            @Override
+            public User get(long id) {
+                return delegate.get(id);
+            }
+
+            @Override
+            public User compute(long id, BiFunction<Long, User, User> remapping) {
+                return delegate.compute(id, (key, previous) -> {
+                    User current = remapping.apply(key, previous);
+                    if (key == 11L) {
+                        computed.countDown();
+                        try {
+                            release.await(10, TimeUnit.SECONDS);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                    return current;
+                });
+            }
+        };
+        service = new UserService(gated);
+        mvc = MockMvcBuilders.standaloneSetup(
+                new UserController(service, new UserResponseCache(service, objectMapper), objectMapper)).build();
+
+        Thread writer = new Thread(() -> service.createUser(new User(null, "Racing", "racing@example.com", 20, "active")));
+        writer.start();
+        assertTrue(computed.await(10, TimeUnit.SECONDS));
+
+        List<String> paths = List.of("/api/users", "/api/users/status/active", "/api/users/statistics");
+        List<String> etags = new ArrayList<>();
+        for (String path : paths) {
+            MvcResult result = mvc.perform(get(path)).andExpect(status().isOk()).andReturn();
+            assertFalse(result.getResponse().getContentAsString().contains("Racing"));
+            etags.add(result.getResponse().getHeader(HttpHeaders.ETAG));
+        }
+        release.countDown();
+        writer.join();
+
+        // The listings above miss the write, so none of the ETags read during it may earn a 304 now
+        for (int i = 0; i < paths.size(); i++) {
+            mvc.perform(get(paths.get(i)).header(HttpHeaders.IF_NONE_MATCH, etags.get(i)))
+                    .andExpect(status().isOk());
+        }
+        assertTrue(mvc.perform(get("/api/users")).andReturn().getResponse().getContentAsString().contains("Racing"));
+    }
+
+    @Test
+    void gzipIsSentOnlyWhenAccepted() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            users.add(new User(null, "User " + i, "user" + i + "@example.com", 30, "active"));
+        }
+        service.createUsers(users);
+
+        mvc.perform(get("/api/users").header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.5"))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"));
+        mvc.perform(get("/api/users").header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, *"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+        mvc.perform(get("/api/users").header(HttpHeaders.ACCEPT_ENCODING, "br, *;q=0"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void pagesAreGzippedWhenAccepted() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            users.add(new User(null, "User " + i, "user" + i + "@example.com", 30, "active"));
+        }
+        service.createUsers(users);
+
+        MvcResult result = mvc.perform(get("/api/users").param("limit", "50").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"" + service.getModificationCount() + "\""))
+                .andReturn();
+        JsonNode page = gunzip(result);
+        assertEquals(50, page.size());
+        assertEquals(json(mvc.perform(get("/api/users").param("limit", "50"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andReturn()), page);
+        // Small pages are not worth compressing
+        mvc.perform(get("/api/users").param("limit", "2").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+    }
+
+    @Test
+    void bulkCreateAcceptsAnArrayOrNdjson() throws Exception {
+        String array = "[{\"name\":\"A\",\"email\":\"a@example.com\",\"age\":20,\"status\":\"active\"},"
+                + "null,"
+                + "{\"name\":\"B\",\"email\":\"b@example.com\",\"age\":21,\"status\":\"pending\"}]";
+        JsonNode results = json(mvc.perform(post("/api/users/bulk").contentType(MediaType.APPLICATION_JSON).content(array))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertEquals(List.of("CREATED", "INVALID", "CREATED"), statuses(results));
+        assertTrue(results.get(1).get("id").isNull());
+
+        String lines = "{\"name\":\"C\",\"email\":\"c@example.com\",\"age\":22,\"status\":\"active\"}\n"
+                + "{\"name\":\"D\",\"email\":\"d@example.com\",\"age\":23,\"status\":\"active\"}\n";
+        results = json(mvc.perform(post("/api/users/bulk").contentType(NDJSON).content(lines))
+                .andExpect(status().isOk())
+                .andReturn());
+        assertEquals(List.of("CREATED", "CREATED"), statuses(results));
+        assertEquals(results.get(0).get("id").asLong() + 1, results.get(1).get("id").asLong());
+
+        mvc.perform(post("/api/users/bulk").contentType(NDJSON).content(lines + "{\"name\":"))
+                .andExpect(status().isBadRequest());
+        assertEquals(14, service.getUserCount());
+    }
+
+    @Test
+    void bulkResultsReportEachItem() throws Exception {
+        String upserts = "[{\"id\":50,\"name\":\"E\",\"email\":\"e@example.com\",\"age\":20,\"status\":\"active\"},"
+                + "{\"id\":50,\"name\":\"E2\",\"email\":\"e@example.com\",\"age\":20,\"status\":\"active\"},"
+                + "{\"id\":-1,\"name\":\"F\",\"email\":\"f@example.com\",\"age\":20,\"status\":\"active\"},"
+                + "null]";
+        JsonNode results = json(mvc.perform(post("/api/users/bulk").param("upsert", "true")
+                        .contentType(MediaType.APPLICATION_JSON).content(upserts))
+                .andReturn());
+        assertEquals(List.of("CREATED", "UPDATED", "INVALID", "INVALID"), statuses(results));
+        assertEquals(-1, results.get(2).get("id").asLong());
+        assertEquals("E2", service.getUserById(50L).orElseThrow().getName());
+
+        results = json(mvc.perform(delete("/api/users/bulk").contentType(MediaType.APPLICATION_JSON)
+                        .content("[50, 50, null, 999]"))
+                .andReturn());
+        assertEquals(List.of("DELETED", "NOT_FOUND", "NOT_FOUND", "NOT_FOUND"), statuses(results));
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(i, results.get(i).get("index").asInt());
+        }
+
+        results = json(mvc.perform(get("/api/users").param("ids", "1", "50", "2")).andReturn());
+        assertEquals(List.of("FOUND", "NOT_FOUND", "FOUND"), statuses(results));
+    }
+
+    @Test
+    void bulkRequestsAreLimitedToAThousandItems() throws Exception {
+        StringBuilder users = new StringBuilder();
+        StringBuilder ids = new StringBuilder();
+        for (int i = 0; i < 1001; i++) {
+            users.append("{\"name\":\"U\",\"email\":\"u@example.com\",\"age\":20,\"status\":\"active\"}\n");
+            ids.append(i == 0 ? "[" : ",").append(i + 1);
+        }
+        ids.append("]");
+
+        mvc.perform(post("/api/users/bulk").contentType(NDJSON).content(users.toString()))
+                .andExpect(status().isBadRequest());
+        mvc.perform(post("/api/users/bulk").param("upsert", "true").contentType(NDJSON).content(users.toString()))
+                .andExpect(status().isBadRequest());
+        mvc.perform(delete("/api/users/bulk").contentType(MediaType.APPLICATION_JSON).content(ids.toString()))
+                .andExpect(status().isBadRequest());
+        mvc.perform(get("/api/users").param("ids", ids.substring(1, ids.length() - 1)))
+                .andExpect(status().isBadRequest());
+        assertEquals(10, service.getUserCount());
+
+        String thousand = users.substring(users.indexOf("\n") + 1);
+        mvc.perform(post("/api/users/bulk").contentType(NDJSON).content(thousand))
+                .andExpect(status().isOk());
+        assertEquals(1010, service.getUserCount());
+    }
+
+    private JsonNode json(MvcResult result) throws Exception {
+        return objectMapper.readTree(result.getResponse().getContentAsByteArray());
+    }
+
+    private JsonNode gunzip(MvcResult result) throws Exception {
+        return objectMapper.readTree(new GZIPInputStream(new ByteArrayInputStream(result.getResponse().getContentAsByteArray())));
+    }
+
+    private static List<String> statuses(JsonNode results) {
+        List<String> statuses = new ArrayList<>();
+        results.forEach(result -> statuses.add(result.get("status").asText()));
+        return statuses;
+    }
+}
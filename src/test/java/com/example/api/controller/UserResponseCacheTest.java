@@ -0,0 +1,73 @@
+package com.example.api.controller;
+
+import com.example.api.model.User;
+import com.example.api.service.MapUserStore;
+import com.example.api.service.UserService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserResponseCacheTest {
+
+    private final UserService service = new UserService(new MapUserStore());
+    private final UserResponseCache cache = new UserResponseCache(service, new ObjectMapper());
+
+    @Test
+    void bodiesAreReusedUntilAWrite() {
+        AtomicInteger loads = new AtomicInteger();
+        UserResponseCache.Payload first = cache.collection("all", () -> {
+            loads.incrementAndGet();
+            return service.getAllUsers();
+        });
+        assertSame(first, cache.collection("all", () -> fail("Cached body was loaded again")));
+        assertEquals(1, loads.get());
+
+        service.createUser(new User(null, "New", "new@example.com", 20, "active"));
+        UserResponseCache.Payload second = cache.collection("all", service::getAllUsers);
+        assertNotSame(first, second);
+        assertEquals(UserResponseCache.etag(service.getModificationCount()), second.etag());
+    }
+
+    @Test
+    void aBodyLoadedAcrossAWriteIsNotKept() {
+        // The write's invalidation runs while the stale list is being loaded, before it is cached
+        UserResponseCache.Payload stale = cache.collection("all", () -> {
+            List<User> users = service.getAllUsers();
+            service.createUser(new User(null, "Racing", "racing@example.com", 20, "active"));
+            return users;
+        });
+        assertEquals(UserResponseCache.etag(10), stale.etag());
+
+        AtomicInteger loads = new AtomicInteger();
+        UserResponseCache.Payload fresh = cache.collection("all", () -> {
+            loads.incrementAndGet();
+            return service.getAllUsers();
+        });
+        assertEquals(1, loads.get());
+        assertEquals(UserResponseCache.etag(11), fresh.etag());
+
+        User racing = service.getUserById(11L).orElseThrow();
+        UserResponseCache.Payload user = cache.user(11L, () -> {
+            service.updateUser(11L, new User(null, "Renamed", "racing@example.com", 21, "active"));
+            return racing;
+        });
+        assertNotNull(user);
+        assertTrue(new String(cache.user(11L, () -> service.getUserById(11L).orElse(null)).json()).contains("Renamed"));
+    }
+
+    @Test
+    void emptyCollectionsAreNotKept() {
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            cache.collection("status:unknown", () -> {
+                loads.incrementAndGet();
+                return service.getUsersByStatus("unknown");
+            });
+        }
+        assertEquals(3, loads.get());
+    }
+}
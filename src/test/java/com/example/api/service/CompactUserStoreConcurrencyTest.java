@@ -0,0 +1,53 @@
+package com.example.api.service;
+
+import com.example.api.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the concurrency checks against {@link CompactUserStore}, plus checks of its own.
+ */
+class CompactUserStoreConcurrencyTest extends UserServiceConcurrencyTest {
+
+    @Override
+    UserService newService() {
+        return new UserService(new CompactUserStore());
+    }
+
+    @Test
+    void statusesBeyondTheDictionaryAreStoredPerUser() {
+        UserService service = newService();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            ids.add(service.createUser(new User(null, "User " + i, null, null, "status-" + i)).getId());
+        }
+        for (int i = 0; i < ids.size(); i += 997) {
+            assertEquals("status-" + i, service.getUserById(ids.get(i)).orElseThrow().getStatus());
+            assertEquals(1, service.getUsersByStatus("status-" + i).size());
+        }
+        // Deleting and replacing users keeps the remaining statuses in place as entries shift
+        for (int i = 0; i < ids.size(); i += 2) {
+            assertTrue(service.deleteUser(ids.get(i)));
+        }
+        service.updateUser(ids.get(39_999), new User(null, "Back", null, null, "active"));
+        assertEquals("active", service.getUserById(ids.get(39_999)).orElseThrow().getStatus());
+        for (int i = 1; i < ids.size() - 1; i += 2) {
+            assertEquals("status-" + i, service.getUserById(ids.get(i)).orElseThrow().getStatus());
+        }
+        assertEquals(10 + 20_000, service.getUserCount());
+    }
+
+    @Test
+    void nonPositiveIdsAreRejectedWithoutCallingTheFunction() {
+        CompactUserStore store = new CompactUserStore();
+        assertThrows(IllegalArgumentException.class, () -> store.compute(0, (id, user) -> fail("Function was called")));
+        UserService service = new UserService(store);
+        assertTrue(service.updateUser(-1L, new User(null, "No", null, null, "active")).isEmpty());
+        assertFalse(service.deleteUser(0L));
+        assertEquals(10, service.getUserCount());
+    }
+}
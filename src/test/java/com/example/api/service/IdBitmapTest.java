@@ -0,0 +1,50 @@
+package com.example.api.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdBitmapTest {
+
+    @Test
+    void matchesATreeSetUnderRandomAddsAndRemoves() {
+        IdBitmap bitmap = new IdBitmap();
+        TreeSet<Long> expected = new TreeSet<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // Mostly dense ids, with some far apart to leave sparse pages
+            long id = random.nextInt(10) == 0 ? 1 + random.nextInt(1 << 30) : 1 + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(id), bitmap.remove(id));
+            } else {
+                assertEquals(expected.add(id), bitmap.add(id));
+            }
+            if (i % 20_000 == 0) {
+                long after = random.nextInt(6_000) - 1;
+                assertEquals(List.copyOf(expected.tailSet(after, false)), bitmap.idsAfter(after).boxed().toList());
+            }
+        }
+        assertEquals(List.copyOf(expected), bitmap.idsAfter(Long.MIN_VALUE).boxed().toList());
+
+        for (Long id : expected) {
+            assertTrue(bitmap.remove(id));
+        }
+        assertTrue(bitmap.isEmpty());
+        assertEquals(0, bitmap.idsAfter(Long.MIN_VALUE).count());
+    }
+
+    @Test
+    void pageBoundariesAreHandled() {
+        IdBitmap bitmap = new IdBitmap();
+        long[] ids = {1, 63, 64, 1023, 1024, 1025, 2047, 4096};
+        for (long id : ids) {
+            bitmap.add(id);
+        }
+        assertArrayEquals(ids, bitmap.idsAfter(0).toArray());
+        assertArrayEquals(new long[] {1024, 1025, 2047, 4096}, bitmap.idsAfter(1023).toArray());
+        assertArrayEquals(new long[] {4096}, bitmap.idsAfter(2047).toArray());
+        assertArrayEquals(new long[0], bitmap.idsAfter(4096).toArray());
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.api.service;
+
+import com.example.api.model.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserJournalTest {
+
+    @TempDir
+    Path dir;
+
+    private UserService open(long snapshotInterval) {
+        // Small segments, so that snapshots have whole segments to delete
+        return new UserService(new MapUserStore(), new UserJournal(dir, snapshotInterval, 64 << 10));
+    }
+
+    @Test
+    void restartRestoresUsersVersionsAndIds() throws Exception {
+        UserService service = open(1_000_000);
+        User created = service.createUser(new User(null, "Persisted", "persisted@example.com", null, "pending"));
+        service.updateUser(1L, new User(null, "John Updated", "john@example.com", 31, "inactive"));
+        service.deleteUser(2L);
+        List<User> before = service.getAllUsers();
+        long modifications = service.getModificationCount();
+        service.close();
+
+        UserService restarted = open(1_000_000);
+        assertSameUsers(before, restarted.getAllUsers());
+        assertEquals(modifications, restarted.getModificationCount());
+        assertEquals(created.getVersion(), restarted.getUserById(created.getId()).orElseThrow().getVersion());
+        assertTrue(restarted.getUserById(2L).isEmpty(), "Deleted user came back");
+        assertTrue(restarted.createUser(new User(null, "Next", "next@example.com", 20, "active")).getId() > created.getId());
+        assertEquals(1, restarted.getUsersByStatus("pending").size());
+        restarted.close();
+    }
+
+    @Test
+    void snapshotsReplaceOldSegmentsAndConcurrentWritesSurvive() throws Exception {
+        UserService service = open(5_000);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 16; thread++) {
+                int index = thread;
+                futures.add(executor.submit(() -> {
+                    Random random = new Random(index);
+                    for (int i = 0; i < 2_000; i++) {
+                        User user = service.createUser(new User(null, "User " + index + "-" + i, "u@example.com", 30, "active"));
+                        if (random.nextInt(4) == 0) {
+                            service.deleteUser(user.getId());
+                        } else if (random.nextInt(4) == 0) {
+                            service.updateUser(user.getId(), new User(null, "Renamed", "r@example.com", null, "inactive"));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        int segments = files("wal-").size();
+        service.snapshot();
+        assertTrue(files("wal-").size() < segments, "Segments covered by the snapshot should be deleted");
+        service.createUser(new User(null, "After snapshot", "after@example.com", 40, "active"));
+        List<User> before = service.getAllUsers();
+        Map<String, Object> statistics = service.getUserStatistics();
+        service.close();
+
+        assertEquals(1, files("snapshot-").size());
+
+        UserService restarted = open(5_000);
+        assertSameUsers(before, restarted.getAllUsers());
+        assertEquals(statistics, restarted.getUserStatistics());
+        restarted.close();
+    }
+
+    @Test
+    void incompleteRecordAtTheEndIsCutOff() throws Exception {
+        UserService service = open(1_000_000);
+        service.createUser(new User(null, "Kept", "kept@example.com", 50, "active"));
+        List<User> before = service.getAllUsers();
+        service.close();
+
+        Path segment = files("wal-").get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            byte[] record = UserJournal.encode(99, 99, new User(99L, "Torn", "torn@example.com", 1, "active"));
+            channel.write(ByteBuffer.wrap(record, 0, record.length - 3));
+        }
+
+        UserService restarted = open(1_000_000);
+        assertSameUsers(before, restarted.getAllUsers());
+        restarted.createUser(new User(null, "Later", "later@example.com", 51, "active"));
+        List<User> after = restarted.getAllUsers();
+        restarted.close();
+
+        assertSameUsers(after, open(1_000_000).getAllUsers());
+    }
+
+    @Test
+    void deletingEveryUserDoesNotBringBackSampleData() throws Exception {
+        UserService service = open(1_000_000);
+        for (long id = 1; id <= 10; id++) {
+            assertTrue(service.deleteUser(id));
+        }
+        service.close();
+
+        UserService restarted = open(1_000_000);
+        assertEquals(0, restarted.getUserCount());
+        assertTrue(restarted.createUser(new User(null, "Eleventh", "e@example.com", 20, "active")).getId() > 10);
+        restarted.close();
+    }
+
+    @Test
+    void writesAreRejectedWithoutChangesOnceTheLogCannotBeWritten() throws Exception {
+        // One-byte segments roll on every flush, which fails once the directory is gone
+        UserService service = new UserService(new MapUserStore(), new UserJournal(dir, 1_000_000, 1));
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+
+        assertThrows(UncheckedIOException.class,
+                () -> service.createUser(new User(null, "Lost", "lost@example.com", 20, "active")));
+        long users = service.getUserCount();
+        long modifications = service.getModificationCount();
+        assertThrows(UncheckedIOException.class,
+                () -> service.createUser(new User(null, "Rejected", "rejected@example.com", 20, "active")));
+        assertThrows(UncheckedIOException.class, () -> service.deleteUser(1L));
+        assertEquals(users, service.getUserCount());
+        assertTrue(service.getUserById(1L).isPresent());
+        assertEquals(users, service.getAllUsers().size());
+        assertTrue(service.getModificationCount() >= modifications);
+        service.close();
+        Files.createDirectories(dir);
+    }
+
+    private List<Path> files(String prefix) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix)).sorted().toList();
+        }
+    }
+
+    private static void assertSameUsers(List<User> expected, List<User> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            User e = expected.get(i);
+            User a = actual.get(i);
+            assertEquals(e.getId(), a.getId());
+            assertEquals(e.getName(), a.getName());
+            assertEquals(e.getEmail(), a.getEmail());
+            assertEquals(e.getAge(), a.getAge());
+            assertEquals(e.getStatus(), a.getStatus());
+            assertEquals(e.getVersion(), a.getVersion());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.api.service;
+
+import com.example.api.model.BulkResult;
+import com.example.api.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserServiceConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int OPERATIONS_PER_THREAD = 2_000;
+    private static final int SEEDED_USERS = 10;
+
+    UserService newService() {
+        return new UserService(new MapUserStore());
+    }
+
+    @Test
+    void concurrentCreatesGetDistinctIdsAndNoneAreLost() throws Exception {
+        UserService service = newService();
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                User created = service.createUser(new User(null, "User " + thread + "-" + i,
+                        "user" + thread + "-" + i + "@example.com", 20 + i % 50, i % 2 == 0 ? "active" : "inactive"));
+                assertTrue(ids.add(created.getId()), "Duplicate id " + created.getId());
+            }
+        });
+
+        int created = THREADS * OPERATIONS_PER_THREAD;
+        assertEquals(created, ids.size());
+        assertEquals(SEEDED_USERS + created, service.getUserCount());
+        assertEquals(SEEDED_USERS + created, service.getAllUsers().size());
+        for (Long id : ids) {
+            assertEquals(id, service.getUserById(id).orElseThrow().getId());
+        }
+        assertConsistent(service);
+    }
+
+    @Test
+    void concurrentUpdatesAndDeletesKeepIndexAndStatisticsExact() throws Exception {
+        UserService service = newService();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(service.createUser(new User(null, "Shared " + i, "shared" + i + "@example.com", 30, "active")).getId());
+        }
+
+        runConcurrently(thread -> {
+            Random random = new Random(thread);
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                Long id = ids.get(random.nextInt(ids.size()));
+                switch (random.nextInt(10)) {
+                    case 0 -> service.deleteUser(id);
+                    case 1 -> service.createUser(new User(null, "New", "new@example.com", null, "pending"));
+                    default -> service.updateUser(id, new User(null, "Updated " + thread, "updated@example.com",
+                            random.nextBoolean() ? random.nextInt(80) : null,
+                            random.nextBoolean() ? "ACTIVE" : "inactive"));
+                }
+            }
+        });
+
+        for (Long id : ids) {
+            service.getUserById(id).ifPresent(user -> assertEquals(id, user.getId()));
+        }
+        assertConsistent(service);
+    }
+
+    @Test
+    void updateOfDeletedUserDoesNotResurrectIt() throws Exception {
+        UserService service = newService();
+        Long id = service.createUser(new User(null, "Victim", "victim@example.com", 40, "active")).getId();
+        CyclicBarrier start = new CyclicBarrier(THREADS);
+
+        runConcurrently(thread -> {
+            await(start);
+            if (thread == 0) {
+                assertTrue(service.deleteUser(id));
+            } else {
+                service.updateUser(id, new User(null, "Racer", "racer@example.com", 41, "inactive"));
+            }
+        });
+
+        assertTrue(service.getUserById(id).isEmpty());
+        assertFalse(service.deleteUser(id));
+        assertConsistent(service);
+    }
+
+    @Test
+    void createsAndUpsertsWithChosenIdsNeverShareAnId() throws Exception {
+        UserService service = newService();
+        int upserters = THREADS / 2;
+        Map<Long, String> creates = new ConcurrentHashMap<>();
+        LongAdder upsertsCreated = new LongAdder();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                String name = "User " + thread + "-" + i;
+                if (thread < upserters) {
+                    // Ids just ahead of the creates, which they are about to be handed
+                    long id = SEEDED_USERS + 1 + thread + (long) i * THREADS;
+                    BulkResult result = service.upsertUsers(List.of(
+                            new User(id, name, "upsert@example.com", 30, "active"))).get(0);
+                    if (result.status() == BulkResult.Status.CREATED) {
+                        upsertsCreated.increment();
+                    }
+                } else {
+                    User created = service.createUser(new User(null, name, "create@example.com", 30, "inactive"));
+                    assertNull(creates.put(created.getId(), name), "Duplicate id " + created.getId());
+                }
+            }
+        });
+
+        assertEquals(SEEDED_USERS + creates.size() + upsertsCreated.sum(), service.getUserCount());
+        assertEquals(service.getUserCount(), service.getAllUsers().size());
+        assertConsistent(service);
+    }
+
+    /**
+     * The status index and the running aggregates must match a scan of the stored users.
+     */
+    private static void assertConsistent(UserService service) {
+        List<User> users = service.getAllUsers();
+        long active = users.stream().filter(user -> "active".equalsIgnoreCase(user.getStatus())).count();
+        long inactive = users.stream().filter(user -> "inactive".equalsIgnoreCase(user.getStatus())).count();
+        double averageAge = users.stream().map(User::getAge).filter(Objects::nonNull)
+                .mapToInt(Integer::intValue).average().orElse(0.0);
+
+        Map<String, Object> stats = service.getUserStatistics();
+        assertEquals((long) users.size(), stats.get("totalUsers"));
+        assertEquals(active, stats.get("activeUsers"));
+        assertEquals(inactive, stats.get("inactiveUsers"));
+        assertEquals(averageAge, (Double) stats.get("averageAge"), 1e-9);
+        assertEquals(users.size(), service.getUserCount());
+
+        assertEquals(active, service.getUsersByStatus("Active").size());
+        assertEquals(inactive, service.getUsersByStatus("INACTIVE").size());
+        assertEquals(users.stream().filter(user -> "pending".equals(user.getStatus())).count(),
+                service.getUsersByStatus("pending").size());
+    }
+
+    private interface Worker {
+        void run(int thread) throws Exception;
+    }
+
+    private static void runConcurrently(Worker worker) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int index = thread;
+                futures.add(executor.submit(() -> {
+                    worker.run(index);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CyclicBarrier barrier) {
+        try {
+            barrier.await(10, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
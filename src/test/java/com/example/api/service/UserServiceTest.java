@@ -0,0 +1,95 @@
+package com.example.api.service;
+
+import com.example.api.model.BulkResult;
+import com.example.api.model.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserServiceTest {
+
+    private final UserService service = new UserService(new MapUserStore());
+
+    @Test
+    void statusLookupIgnoresCase() {
+        assertEquals(List.of(1L, 2L, 4L, 5L, 6L, 8L, 9L, 10L), ids(service.getUsersByStatus("ACTIVE")));
+        assertEquals(List.of(3L, 7L), ids(service.getUsersByStatus("Inactive")));
+        assertEquals(List.of(), service.getUsersByStatus("pending"));
+    }
+
+    @Test
+    void writesMoveUsersBetweenStatuses() {
+        service.updateUser(3L, new User(null, "Bob Johnson", "bob.johnson@example.com", 35, "Pending"));
+        assertEquals(List.of(3L), ids(service.getUsersByStatus("pending")));
+        assertEquals(List.of(7L), ids(service.getUsersByStatus("inactive")));
+
+        // A change of case only keeps the user listed, with the status as stored
+        service.updateUser(1L, new User(null, "John Doe", "john.doe@example.com", 30, "ACTIVE"));
+        assertTrue(service.getUsersByStatus("active").stream()
+            .anyMatch(user -> user.getId() == 1L && user.getStatus().equals("ACTIVE")));
+
+        Long created = service.createUser(new User(null, "No Status", "none@example.com", 20, null)).getId();
+        assertTrue(service.deleteUser(7L));
+        assertEquals(List.of(), service.getUsersByStatus("inactive"));
+        for (String status : List.of("active", "inactive", "pending")) {
+            assertFalse(ids(service.getUsersByStatus(status)).contains(created));
+        }
+
+        service.updateUser(created, new User(null, "No Status", "none@example.com", 20, "inactive"));
+        assertEquals(List.of(created), ids(service.getUsersByStatus("INACTIVE")));
+    }
+
+    @Test
+    void aggregatesFollowEveryWrite() {
+        assertStatistics(10, 8, 2, 33.2);
+
+        // Users without an age count, but are left out of the average
+        Long pending = service.createUser(new User(null, "Pending", "pending@example.com", null, "pending")).getId();
+        assertStatistics(11, 8, 2, 33.2);
+
+        service.updateUser(pending, new User(null, "Pending", "pending@example.com", 22, "Inactive"));
+        assertStatistics(11, 8, 3, 354 / 11.0);
+
+        service.deleteUser(9L);
+        service.updateUser(1L, new User(null, "John Doe", "john.doe@example.com", null, "ACTIVE"));
+        assertStatistics(10, 7, 3, 31.0);
+
+        service.createUsers(List.of(new User(null, "A", "a@example.com", 40, "active"),
+            new User(null, "B", "b@example.com", 50, "active")));
+        service.deleteUsers(List.of(2L, 3L, 999L));
+        assertStatistics(10, 8, 2, 309 / 9.0);
+    }
+
+    @Test
+    void upsertsCannotPushGeneratedIdsToOverflow() {
+        List<BulkResult> results = service.upsertUsers(List.of(
+            new User(Long.MAX_VALUE, "Max", "max@example.com", 30, "active"),
+            new User(UserService.MAX_CLIENT_ID + 1, "Above", "above@example.com", 30, "active"),
+            new User(UserService.MAX_CLIENT_ID, "Ceiling", "ceiling@example.com", 30, "active")));
+        assertEquals(List.of(BulkResult.Status.INVALID, BulkResult.Status.INVALID, BulkResult.Status.CREATED),
+            results.stream().map(BulkResult::status).toList());
+        assertTrue(service.getUserById(Long.MAX_VALUE).isEmpty());
+
+        // Generated ids carry on past the ceiling and stay usable
+        Long created = service.createUser(new User(null, "Next", "next@example.com", 30, "active")).getId();
+        assertEquals(UserService.MAX_CLIENT_ID + 1, created.longValue());
+        assertTrue(service.updateUser(created, new User(null, "Renamed", "next@example.com", 31, "active")).isPresent());
+        assertTrue(service.deleteUser(created));
+        assertEquals(List.of(UserService.MAX_CLIENT_ID), service.getUsersPage(10L, 10).stream().map(User::getId).toList());
+    }
+
+    private void assertStatistics(long total, long active, long inactive, double averageAge) {
+        Map<String, Object> stats = service.getUserStatistics();
+        assertEquals(total, service.getUserCount());
+        assertEquals(total, stats.get("totalUsers"));
+        assertEquals(active, stats.get("activeUsers"));
+        assertEquals(inactive, stats.get("inactiveUsers"));
+        assertEquals(averageAge, (Double) stats.get("averageAge"), 1e-9);
+    }
+
+    private static List<Long> ids(List<User> users) {
+        return users.stream().map(User::getId).sorted().toList();
+    }
+}
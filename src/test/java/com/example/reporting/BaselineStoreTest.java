@@ -0,0 +1,65 @@
+package com.example.reporting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BaselineStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void savedHistogramsLoadBackUnchanged() throws Exception {
+        BaselineStore store = new BaselineStore(dir);
+        assertTrue(store.load("Sim").isEmpty());
+
+        GatlingJUnitReportGenerator.TestResults results = TestLogs.run(1_000, 500);
+        results.recordRequest("Slow", 1_000, 61_000, true);
+        Path file = store.save(results);
+        assertEquals("Sim.json", file.getFileName().toString());
+
+        Map<String, LatencyHistogram> baseline = store.load("Sim").orElseThrow();
+        assertEquals(List.of("Get", "Post", "Slow"), List.copyOf(baseline.keySet()));
+        for (Map.Entry<String, LatencyHistogram> entry : baseline.entrySet()) {
+            LatencyHistogram original = results.requestSummaries.get(entry.getKey()).histogram;
+            LatencyHistogram loaded = entry.getValue();
+            assertEquals(original.getTotalCount(), loaded.getTotalCount());
+            assertEquals(original.getMinValue(), loaded.getMinValue());
+            assertEquals(original.getMaxValue(), loaded.getMaxValue());
+            for (double percentile : new double[] {1, 50, 95, 99.9, 100}) {
+                assertEquals(original.valueAtPercentile(percentile), loaded.valueAtPercentile(percentile));
+            }
+        }
+    }
+
+    @Test
+    void onlyNonEmptyBucketsAreStored() throws Exception {
+        BaselineStore store = new BaselineStore(dir);
+        GatlingJUnitReportGenerator.TestResults results = new GatlingJUnitReportGenerator.TestResults();
+        results.simulationName = "simulations.Some Simulation";
+        results.startTime = 1_000L;
+        results.recordRequest("Get", 1_000, 1_003, true);
+        results.recordRequest("Get", 1_000, 1_003, true);
+        results.recordRequest("Get", 1_000, 6_000, true);
+        Path file = store.save(results);
+        assertEquals("simulations.Some_Simulation.json", file.getFileName().toString());
+
+        JsonNode json = new ObjectMapper().readTree(file.toFile());
+        assertEquals("simulations.Some Simulation", json.get("simulation").asText());
+        assertEquals(1_000, json.get("createdAt").asLong());
+        JsonNode get = json.get("requests").get("Get");
+        assertEquals(3, get.get("count").asLong());
+        assertEquals(3, get.get("minValue").asLong());
+        assertEquals(5_000, get.get("maxValue").asLong());
+        assertEquals(2, get.get("buckets").size());
+        assertEquals(2, get.get("buckets").get("3").asLong());
+        assertEquals(1, get.get("buckets").get(String.valueOf(LatencyHistogram.indexFor(5_000))).asLong());
+    }
+}
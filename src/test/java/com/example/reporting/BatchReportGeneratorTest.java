@@ -0,0 +1,75 @@
+package com.example.reporting;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchReportGeneratorTest {
+
+    private static final FileTime LONG_AGO = FileTime.fromMillis(0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void onlyNewOrChangedRunsAreReported() throws Exception {
+        Path gatlingDir = dir.resolve("gatling");
+        Path junitDir = dir.resolve("junit");
+        List<Path> logs = new ArrayList<>();
+        for (int run = 0; run < 3; run++) {
+            Path runDir = Files.createDirectories(gatlingDir.resolve("testsimulation-" + run));
+            logs.add(TestLogs.write(runDir.resolve("simulation.log"), 500, 3, run));
+        }
+        BatchReportGenerator batch = new BatchReportGenerator(new GatlingJUnitReportGenerator(), gatlingDir, junitDir);
+
+        assertTrue(batch.run());
+        List<Path> reports = logs.stream().map(batch::outputFileFor).toList();
+        for (Path report : reports) {
+            assertTrue(Files.readString(report).contains("simulations.TestSimulation"));
+            Files.setLastModifiedTime(report, LONG_AGO);
+        }
+        assertTrue(Files.exists(junitDir.resolve(BatchReportGenerator.INDEX_FILE)));
+
+        // Nothing changed
+        assertTrue(new BatchReportGenerator(new GatlingJUnitReportGenerator(), gatlingDir, junitDir).run());
+        for (Path report : reports) {
+            assertEquals(LONG_AGO, Files.getLastModifiedTime(report));
+        }
+
+        // One log grew, and one report went missing
+        Files.writeString(logs.get(1), "REQUEST\t\tLate\t" + TestLogs.RUN_START + "\t" + (TestLogs.RUN_START + 5) + "\tOK\t\n",
+            StandardOpenOption.APPEND);
+        Files.delete(reports.get(2));
+        assertTrue(new BatchReportGenerator(new GatlingJUnitReportGenerator(), gatlingDir, junitDir).run());
+        assertEquals(LONG_AGO, Files.getLastModifiedTime(reports.get(0)));
+        assertNotEquals(LONG_AGO, Files.getLastModifiedTime(reports.get(1)));
+        assertTrue(Files.readString(reports.get(1)).contains("Late_Performance_Test"));
+        assertTrue(Files.exists(reports.get(2)));
+    }
+
+    @Test
+    void aFailedRunIsRetriedWithoutStoppingTheOthers() throws Exception {
+        Path gatlingDir = dir.resolve("gatling");
+        Path junitDir = dir.resolve("junit");
+        Path good = TestLogs.write(Files.createDirectories(gatlingDir.resolve("testsimulation-good")).resolve("simulation.log"), 500, 3, 1);
+        Path bad = Files.writeString(Files.createDirectories(gatlingDir.resolve("testsimulation-bad")).resolve("simulation.log"),
+            "REQUEST\t\tBroken\t1000\tnot-a-number\tOK\t\n");
+        BatchReportGenerator batch = new BatchReportGenerator(new GatlingJUnitReportGenerator(), gatlingDir, junitDir);
+
+        assertFalse(batch.run());
+        assertTrue(Files.exists(batch.outputFileFor(good)));
+        assertFalse(Files.exists(batch.outputFileFor(bad)));
+
+        Files.writeString(bad, "RUN\tsimulations.TestSimulation\ttestsimulation\t1000\tTest run\t3.11.5\n"
+            + "REQUEST\t\tFixed\t1000\t1010\tOK\t\n");
+        assertTrue(batch.run());
+        assertTrue(Files.readString(batch.outputFileFor(bad)).contains("Fixed_Performance_Test"));
+    }
+}
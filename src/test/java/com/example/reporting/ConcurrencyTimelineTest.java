@@ -0,0 +1,126 @@
+package com.example.reporting;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrencyTimelineTest {
+
+    private static final long START = 1_700_000_000_000L;
+    private static final long STAGE_MILLIS = 4000;
+    private static final int[] USERS = {1, 2, 4, 8, 16};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void throughputThatKeepsScalingHasNoKnee() throws Exception {
+        ConcurrencyTimeline concurrency = parse(stepLoad(new long[] {100, 100, 100, 100, 100}, true));
+
+        assertTrue(concurrency.hasUserRecords);
+        assertEquals(16, concurrency.maxActiveUsers);
+        assertNull(concurrency.knee);
+        assertEquals(0, concurrency.kneeConcurrency(), 0);
+        assertTrue(concurrency.rows.stream().noneMatch(ConcurrencyTimeline.Row::saturated));
+        // Ten requests per second per user in the middle of each stage
+        for (int stage = 0; stage < USERS.length; stage++) {
+            ConcurrencyTimeline.Row row = concurrency.rowAt(START + stage * STAGE_MILLIS + 2000);
+            assertEquals(USERS[stage], row.activeUsers());
+            assertEquals(USERS[stage] * 10.0, row.requestsPerSecond(), 1e-9);
+        }
+    }
+
+    @Test
+    void throughputPlateauIsReportedAsTheKnee() throws Exception {
+        // Throughput stops growing at 40 requests per second past four users, latency grows instead
+        ConcurrencyTimeline concurrency = parse(stepLoad(new long[] {100, 100, 100, 200, 500}, true));
+
+        assertNotNull(concurrency.knee);
+        assertEquals(START + 3 * STAGE_MILLIS, concurrency.knee.startMillis());
+        assertEquals(8, concurrency.knee.activeUsers());
+        assertEquals(8, concurrency.kneeConcurrency(), 0);
+        assertEquals(40, concurrency.kneeRequestsPerSecond, 1e-9);
+        assertTrue(concurrency.rowAt(START + 3 * STAGE_MILLIS + 2000).saturated());
+        assertTrue(concurrency.rowAt(START + 4 * STAGE_MILLIS + 2000).saturated());
+        assertFalse(concurrency.rowAt(START + 2 * STAGE_MILLIS + 2000).saturated());
+    }
+
+    @Test
+    void inFlightRequestsAreCheckedAgainstLittlesLaw() throws Exception {
+        Path log = stepLoad(new long[] {100, 100, 100, 200, 500}, true);
+        ConcurrencyTimeline steady = parse(log);
+        // In a closed loop each user always has one request in flight, which is also throughput times latency
+        for (int stage = 0; stage < USERS.length; stage++) {
+            ConcurrencyTimeline.Row row = steady.rowAt(START + stage * STAGE_MILLIS + 3000);
+            assertEquals(USERS[stage], row.inFlight(), 1e-9);
+            assertEquals(USERS[stage], row.littlesLawInFlight(), 1e-9);
+            assertTrue(row.littlesLawConsistent());
+        }
+        assertEquals(16, steady.maxInFlight, 1e-9);
+
+        // One request in flight for the whole second stage only counts towards throughput when it ends
+        Files.writeString(log, "REQUEST\t\tSlow\t" + (START + STAGE_MILLIS) + "\t" + (START + 2 * STAGE_MILLIS) + "\tOK\t\n",
+            StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        ConcurrencyTimeline queued = parse(log);
+        ConcurrencyTimeline.Row building = queued.rowAt(START + STAGE_MILLIS + 1000);
+        assertEquals(3, building.inFlight(), 1e-9);
+        assertEquals(2, building.littlesLawInFlight(), 1e-9);
+        assertFalse(building.littlesLawConsistent());
+        ConcurrencyTimeline.Row draining = queued.rowAt(START + 2 * STAGE_MILLIS);
+        assertEquals(4, draining.inFlight(), 1e-9);
+        assertEquals(7.8, draining.littlesLawInFlight(), 1e-9);
+        assertFalse(draining.littlesLawConsistent());
+        assertEquals(steady.littlesLawInconsistentWindows + 5, queued.littlesLawInconsistentWindows);
+    }
+
+    @Test
+    void logsWithoutUserRecordsHaveNoKnee() throws Exception {
+        ConcurrencyTimeline concurrency = parse(stepLoad(new long[] {100, 100, 100, 200, 500}, false));
+
+        assertFalse(concurrency.hasUserRecords);
+        assertNull(concurrency.knee);
+        assertEquals(0, concurrency.maxActiveUsers);
+        assertTrue(concurrency.rows.stream().noneMatch(ConcurrencyTimeline.Row::saturated));
+        assertEquals(16, concurrency.maxInFlight, 1e-9);
+    }
+
+    private ConcurrencyTimeline parse(Path log) throws IOException {
+        return new GatlingJUnitReportGenerator().parseGatlingLog(log).concurrency;
+    }
+
+    /**
+     * A closed-model step load: every {@link #STAGE_MILLIS} the users go up to the next of
+     * {@link #USERS}, and each of them sends requests back to back that take that stage's latency.
+     */
+    private Path stepLoad(long[] latencies, boolean userRecords) throws IOException {
+        Path file = dir.resolve("simulation.log");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("RUN\tsimulations.StepSimulation\tstepsimulation\t" + START + "\tStep load\t3.11.5\n");
+            for (int stage = 0; stage < USERS.length; stage++) {
+                long stageStart = START + stage * STAGE_MILLIS;
+                for (int user = 0; user < USERS[stage]; user++) {
+                    if (userRecords && (stage == 0 || user >= USERS[stage - 1])) {
+                        out.write("USER\tStep\tSTART\t" + stageStart + "\n");
+                    }
+                    for (long t = stageStart; t < stageStart + STAGE_MILLIS; t += latencies[stage]) {
+                        out.write("REQUEST\t\tGet\t" + t + "\t" + (t + latencies[stage]) + "\tOK\t\n");
+                    }
+                }
+            }
+            if (userRecords) {
+                for (int user = 0; user < USERS[USERS.length - 1]; user++) {
+                    out.write("USER\tStep\tEND\t" + (START + USERS.length * STAGE_MILLIS) + "\n");
+                }
+            }
+        }
+        return file;
+    }
+}
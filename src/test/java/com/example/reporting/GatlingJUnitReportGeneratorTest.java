@@ -0,0 +1,74 @@
+package com.example.reporting;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GatlingJUnitReportGeneratorTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void aggregatesMatchTheLogRecords() throws Exception {
+        Path log = TestLogs.write(dir.resolve("simulation.log"), 20_000, 6, 11);
+        GatlingJUnitReportGenerator.TestResults results = new GatlingJUnitReportGenerator().parseGatlingLog(log);
+
+        // Recompute every figure from the text, keeping all response times
+        Map<String, List<Long>> times = new LinkedHashMap<>();
+        Map<String, Integer> failures = new HashMap<>();
+        long lastEnd = 0;
+        for (String line : Files.readAllLines(log)) {
+            String[] fields = line.split("\t");
+            if (fields[0].equals("REQUEST")) {
+                long start = Long.parseLong(fields[3]);
+                long end = Long.parseLong(fields[4]);
+                times.computeIfAbsent(fields[2], name -> new ArrayList<>()).add(end - start);
+                if (!fields[5].equals("OK")) {
+                    failures.merge(fields[2], 1, Integer::sum);
+                }
+                lastEnd = Math.max(lastEnd, end);
+            }
+        }
+
+        assertEquals(TestLogs.RUN_START, results.getStartTime());
+        assertEquals((lastEnd - TestLogs.RUN_START) / 1000.0, results.getDuration());
+        assertEquals(20_000, results.getTotalRequests());
+        assertEquals(failures.values().stream().mapToInt(Integer::intValue).sum(), results.getFailedRequests());
+        assertEquals(List.copyOf(times.keySet()), List.copyOf(results.getRequestSummaries().keySet()));
+        for (Map.Entry<String, List<Long>> entry : times.entrySet()) {
+            List<Long> values = entry.getValue();
+            GatlingJUnitReportGenerator.RequestSummary summary = results.getRequestSummaries().get(entry.getKey());
+            assertEquals(values.size(), summary.getCount());
+            assertEquals(failures.getOrDefault(entry.getKey(), 0), summary.getFailures());
+            assertEquals(values.stream().mapToLong(Long::longValue).sum(), summary.getTotalTimeMs());
+            assertEquals(Collections.min(values), summary.getMinTimeMs());
+            assertEquals(Collections.max(values), summary.getMaxTimeMs());
+        }
+    }
+
+    @Test
+    void summaryFiguresComeFromTheRunningTotals() {
+        GatlingJUnitReportGenerator.TestResults results = new GatlingJUnitReportGenerator.TestResults();
+        results.startTime = 1_000L;
+        results.recordRequest("Get", 1_000, 1_010, true);
+        results.recordRequest("Get", 1_100, 1_130, false);
+        results.recordRequest("Get", 1_200, 1_220, true);
+        results.recordRequest("Get", 1_300, 1_340, true);
+        results.finish();
+
+        GatlingJUnitReportGenerator.RequestSummary summary = results.getRequestSummaries().get("Get");
+        assertEquals(25.0, summary.averageMillis());
+        assertEquals(75.0, summary.successRate());
+        assertEquals(10, summary.getMinTimeMs());
+        assertEquals(40, summary.getMaxTimeMs());
+        assertEquals(20, summary.getHistogram().valueAtPercentile(50));
+        assertEquals(0.34, results.getDuration());
+        assertEquals(1, results.getFailedRequests());
+    }
+}
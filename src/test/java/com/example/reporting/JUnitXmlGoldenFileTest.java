@@ -0,0 +1,91 @@
+package com.example.reporting;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the streamed JUnit XML with golden-junit.xml, which the DOM + Transformer writer it
+ * replaced produced for golden-simulation.log. Its test cases have since been moved from hash
+ * order into first-seen order, which the report now keeps, and properties were appended to the
+ * suite; everything else must match byte for byte and in document order, apart from the
+ * timestamp, which is in the local time zone.
+ */
+class JUnitXmlGoldenFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void streamedXmlMatchesTheDomWriter() throws Exception {
+        Path log = dir.resolve("simulation.log");
+        try (InputStream in = resource("golden-simulation.log")) {
+            Files.copy(in, log);
+        }
+        GatlingJUnitReportGenerator generator = new GatlingJUnitReportGenerator();
+        StringWriter out = new StringWriter();
+        generator.writeJUnitXml(generator.parseGatlingLog(log), out);
+
+        String golden;
+        try (InputStream in = resource("golden-junit.xml")) {
+            golden = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        Document expected = Document.split(golden);
+        Document actual = Document.split(out.toString());
+
+        assertEquals(expected.header, actual.header);
+        assertEquals(expected.testCases, actual.testCases);
+        assertEquals(expected.suiteProperties, actual.suiteProperties.subList(0, expected.suiteProperties.size()));
+        assertEquals(expected.footer, actual.footer);
+    }
+
+    private static InputStream resource(String name) {
+        return Objects.requireNonNull(JUnitXmlGoldenFileTest.class.getResourceAsStream("/reporting/" + name), name);
+    }
+
+    /**
+     * The lines of a report: everything before the first test case, each test case, the suite
+     * property lines, and what follows them.
+     */
+    private record Document(List<String> header, List<String> testCases, List<String> suiteProperties,
+                            List<String> footer) {
+
+        static Document split(String xml) {
+            List<String> lines = new ArrayList<>(List.of(xml.replaceAll(" timestamp=\"[^\"]*\"", "").split("\n")));
+            int firstTestCase = indexOf(lines, "  <testcase ", 0);
+            int properties = indexOf(lines, "  <properties>", firstTestCase);
+            int propertiesEnd = indexOf(lines, "  </properties>", properties);
+
+            List<String> testCases = new ArrayList<>();
+            StringBuilder testCase = new StringBuilder();
+            for (String line : lines.subList(firstTestCase, properties)) {
+                if (line.startsWith("  <testcase ") && testCase.length() > 0) {
+                    testCases.add(testCase.toString());
+                    testCase.setLength(0);
+                }
+                testCase.append(line).append('\n');
+            }
+            testCases.add(testCase.toString());
+
+            return new Document(lines.subList(0, firstTestCase), testCases,
+                lines.subList(properties + 1, propertiesEnd), lines.subList(propertiesEnd, lines.size()));
+        }
+
+        private static int indexOf(List<String> lines, String prefix, int from) {
+            for (int i = from; i < lines.size(); i++) {
+                if (lines.get(i).startsWith(prefix)) {
+                    return i;
+                }
+            }
+            throw new AssertionError("No line starting with '" + prefix.trim() + "'");
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.reporting;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(50, histogram.valueAtPercentile(50));
+        assertEquals(95, histogram.valueAtPercentile(95));
+        assertEquals(100, histogram.valueAtPercentile(100));
+        assertEquals(1, histogram.valueAtPercentile(0.1));
+        assertEquals(1, histogram.getMinValue());
+        assertEquals(100, histogram.getMaxValue());
+        assertEquals(5050, histogram.getTotalValue());
+    }
+
+    @Test
+    void largeValuesStayWithinTheRelativeError() {
+        Random random = new Random(42);
+        long[] values = new long[100_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 256 + random.nextInt(600_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+            long reported = histogram.valueAtPercentile(percentile);
+            assertTrue(reported >= exact, percentile + ": " + reported + " below " + exact);
+            assertTrue(reported <= exact * 1.008, percentile + ": " + reported + " too far above " + exact);
+        }
+        assertEquals(values[values.length - 1], histogram.valueAtPercentile(100));
+    }
+
+    @Test
+    void backFillMatchesRecordingTheMissedRequests() {
+        for (long value : new long[] {5, 99, 100, 1_000, 12_345, 7_200_000}) {
+            for (long interval : new long[] {1, 7, 100}) {
+                LatencyHistogram corrected = new LatencyHistogram();
+                corrected.recordWithExpectedInterval(value, interval);
+
+                LatencyHistogram expected = new LatencyHistogram();
+                expected.record(value);
+                for (long missing = value - interval; missing >= interval; missing -= interval) {
+                    expected.record(missing);
+                }
+                assertSameHistogram(expected, corrected);
+            }
+        }
+    }
+
+    @Test
+    void correctedCopyMatchesCorrectingWhileRecording() {
+        LatencyHistogram raw = new LatencyHistogram();
+        LatencyHistogram corrected = new LatencyHistogram();
+        for (long value = 0; value < 256; value += 3) {
+            raw.recordCount(value, 4);
+            for (int i = 0; i < 4; i++) {
+                corrected.recordWithExpectedInterval(value, 10);
+            }
+        }
+        assertSameHistogram(corrected, raw.copyCorrectedForExpectedInterval(10));
+    }
+
+    @Test
+    void mergeAndRebuildFromBucketsKeepCounts() {
+        LatencyHistogram first = new LatencyHistogram();
+        LatencyHistogram second = new LatencyHistogram();
+        LatencyHistogram all = new LatencyHistogram();
+        Random random = new Random(7);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextInt(5_000);
+            (i % 2 == 0 ? first : second).record(value);
+            all.record(value);
+        }
+        first.merge(second);
+        assertSameHistogram(all, first);
+
+        long[] counts = new long[all.bucketCount()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = all.countAtBucket(i);
+        }
+        LatencyHistogram rebuilt = LatencyHistogram.fromBucketCounts(counts, all.getMinValue(), all.getMaxValue());
+        assertEquals(all.getTotalCount(), rebuilt.getTotalCount());
+        for (double percentile : new double[] {1, 50, 99, 100}) {
+            assertEquals(all.valueAtPercentile(percentile), rebuilt.valueAtPercentile(percentile));
+        }
+    }
+
+    @Test
+    void bucketsCoverEveryValueOnce() {
+        for (long value = 0; value < 1 << 20; value += 1 + value / 64) {
+            int index = LatencyHistogram.indexFor(value);
+            assertTrue(LatencyHistogram.lowestEquivalentValue(index) <= value);
+            assertTrue(LatencyHistogram.highestEquivalentValue(index) >= value);
+        }
+    }
+
+    private static void assertSameHistogram(LatencyHistogram expected, LatencyHistogram actual) {
+        assertEquals(expected.getTotalCount(), actual.getTotalCount());
+        assertEquals(expected.getTotalValue(), actual.getTotalValue());
+        assertEquals(expected.getMinValue(), actual.getMinValue());
+        assertEquals(expected.getMaxValue(), actual.getMaxValue());
+        for (int i = 0; i < Math.max(expected.bucketCount(), actual.bucketCount()); i++) {
+            assertEquals(expected.countAtBucket(i), actual.countAtBucket(i), "bucket " + i);
+        }
+    }
+}
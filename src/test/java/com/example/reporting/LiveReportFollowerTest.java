@@ -0,0 +1,87 @@
+package com.example.reporting;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveReportFollowerTest {
+
+    private static final long RUN_START = 1_758_575_836_000L;
+
+    @TempDir
+    Path dir;
+
+    private final AtomicInteger breaches = new AtomicInteger();
+    private final ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+    @Test
+    void sustainedBreachStopsTheRunOnce() throws Exception {
+        // 5 s within the p95 limit, then 8 s above it
+        String log = requests(0, 5, 10) + requests(5, 13, 900);
+        assertTrue(follow(log, 500, 0, 3_000));
+        assertEquals(1, breaches.get());
+        String printed = output.toString(StandardCharsets.UTF_8);
+        assertTrue(printed.contains("SLO breached for 3 s (p95 limit 500 ms"), printed);
+        assertEquals(13, printed.lines().filter(line -> line.startsWith("[live] ") && line.contains("req/s")).count());
+        assertTrue(printed.contains("Live follow finished: 130 requests, 0 failed"), printed);
+    }
+
+    @Test
+    void shortBreachesAreTolerated() throws Exception {
+        // Errors for 2 s at a time, against a 3 s limit
+        String log = requests(0, 3, 10) + failures(3, 5) + requests(5, 8, 10) + failures(8, 10) + requests(10, 14, 10);
+        assertFalse(follow(log, 0, 5, 3_000));
+        assertEquals(0, breaches.get());
+    }
+
+    /**
+     * Follow a run whose log is written once the follower has started, and finish the run as
+     * soon as the follower has read all of it.
+     */
+    private boolean follow(String records, long maxP95Ms, double maxErrorPercent, long sustainMillis) throws Exception {
+        Path runDir = Files.createDirectories(dir.resolve("testsimulation-1"));
+        LiveReportFollower follower = new LiveReportFollower(dir, maxP95Ms, maxErrorPercent, sustainMillis,
+            breaches::incrementAndGet, new PrintStream(output, true, StandardCharsets.UTF_8));
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> breached = executor.submit(follower::follow);
+            String log = "RUN\tsimulations.TestSimulation\ttestsimulation\t" + RUN_START + "\tTest run\t3.11.5\n" + records;
+            Files.writeString(runDir.resolve("simulation.log"), log);
+            long deadline = System.currentTimeMillis() + 10_000;
+            while (!output.toString(StandardCharsets.UTF_8).contains("[live]") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(50);
+            }
+            Files.writeString(runDir.resolve("index.html"), "<html></html>");
+            return breached.get(10, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Ten successful requests a second from second {@code from} to {@code to}, each taking {@code millis}.
+     */
+    private static String requests(int from, int to, long millis) {
+        StringBuilder log = new StringBuilder();
+        for (int second = from; second < to; second++) {
+            for (int i = 0; i < 10; i++) {
+                long end = RUN_START + second * 1000L + i * 100 + 50;
+                log.append("REQUEST\t\tGet\t").append(end - millis).append('\t').append(end).append("\tOK\t\n");
+            }
+        }
+        return log.toString();
+    }
+
+    private static String failures(int from, int to) {
+        return requests(from, to, 10).replace("\tOK\t", "\tKO\tstatus.find.is(200), but actually found 500");
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.reporting;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelLogParserTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parallelParseEqualsSequentialParse() throws Exception {
+        // Several megabytes, so the log is split into more than one chunk
+        Path log = TestLogs.write(dir.resolve("simulation.log"), 80_000, 25, 1);
+        assertTrue(Files.size(log) > 4 << 20);
+
+        GatlingJUnitReportGenerator.TestResults sequential;
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            sequential = SimulationLogTokenizer.parseRange(channel, 0, channel.size());
+        }
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            GatlingJUnitReportGenerator.TestResults parallel = new ParallelLogParser(pool).parse(log);
+            TestLogs.assertSameResults(sequential, parallel);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void logWithoutTrailingNewlineKeepsItsLastLine() throws Exception {
+        Path log = dir.resolve("simulation.log");
+        Files.writeString(log, "RUN\tsimulations.TestSimulation\ttestsimulation\t1000\tTest run\t3.11.5\n"
+            + "REQUEST\t\tFirst\t1000\t1010\tOK\t\n"
+            + "REQUEST\t\tSecond\t1005\t1030\tKO\tfailed");
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            GatlingJUnitReportGenerator.TestResults results = new ParallelLogParser(pool).parse(log);
+            assertEquals(2, results.totalRequests);
+            assertEquals(1, results.failedRequests);
+            assertEquals(25, results.requestSummaries.get("Second").maxTimeMs);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.reporting;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportSinkTest {
+
+    private static final double[] PERCENTILES = {50, 99.9};
+    private static final String AWKWARD_NAME = "Search, \"all\" in C:\\data\nnext";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void prometheusEscapesLabelsAndRendersQuantiles() throws Exception {
+        GatlingJUnitReportGenerator.TestResults results = results();
+        List<String> lines = Arrays.asList(write(new PrometheusReportSink(PERCENTILES), results).split("\n"));
+
+        String labels = "simulation=\"Sim\",request=\"Search, \\\"all\\\" in C:\\\\data\\nnext\"";
+        assertTrue(lines.contains("gatling_requests_total{" + labels + ",status=\"ok\"} 2"), String.join("\n", lines));
+        assertTrue(lines.contains("gatling_requests_total{" + labels + ",status=\"ko\"} 1"));
+        assertTrue(lines.contains("# TYPE gatling_response_time_seconds summary"));
+
+        LatencyHistogram histogram = results.getRequestSummaries().get(AWKWARD_NAME).getHistogram();
+        assertEquals(histogram.valueAtPercentile(50) / 1000.0,
+            sampleValue(lines, "gatling_response_time_seconds{" + labels + ",quantile=\"0.5\"}"), 1e-9);
+        assertEquals(histogram.valueAtPercentile(99.9) / 1000.0,
+            sampleValue(lines, "gatling_response_time_seconds{" + labels + ",quantile=\"0.999\"}"), 1e-9);
+        assertTrue(lines.contains("gatling_response_time_seconds_sum{" + labels + "} 0.601"));
+        assertTrue(lines.contains("gatling_response_time_seconds_count{" + labels + "} 3"));
+    }
+
+    @Test
+    void csvHasOneColumnPerPercentileAndRootLocaleNumbers() throws Exception {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            GatlingJUnitReportGenerator.TestResults results = results();
+            String[] lines = write(new CsvReportSink(PERCENTILES), results).split("\n");
+
+            assertEquals("request,count,failures,success_rate_percent,min_response_time_ms,max_response_time_ms,"
+                + "mean_response_time_ms,p50_response_time_ms,p99_9_response_time_ms", lines[0]);
+            LatencyHistogram histogram = results.getRequestSummaries().get(AWKWARD_NAME).getHistogram();
+            // The name is quoted and spans two physical lines
+            assertEquals("\"Search, \"\"all\"\" in C:\\data", lines[1]);
+            assertEquals("next\",3,1,66.67,100,301,200.33," + histogram.valueAtPercentile(50) + ","
+                + histogram.valueAtPercentile(99.9), lines[2]);
+            assertEquals(3, lines.length);
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void jsonIsValid() throws Exception {
+        GatlingJUnitReportGenerator.TestResults results = results();
+        JsonNode json = new ObjectMapper().readTree(write(new JsonReportSink(PERCENTILES), results));
+
+        assertEquals("Sim", json.get("simulation").asText());
+        assertEquals(3, json.get("totalRequests").asInt());
+        assertEquals(1, json.get("failedRequests").asInt());
+        JsonNode request = json.get("requests").get(0);
+        assertEquals(AWKWARD_NAME, request.get("name").asText());
+        assertEquals(200.33, request.get("meanResponseTimeMs").asDouble(), 0.01);
+        assertEquals(List.of("p50", "p99_9"), fieldNames(request.get("percentiles")));
+        assertTrue(json.get("concurrency").get("maxInFlightRequests").isNumber());
+    }
+
+    @Test
+    void sinksCanBeGivenByClassName() throws Exception {
+        GatlingJUnitReportGenerator generator = new GatlingJUnitReportGenerator(
+            "junit, " + PercentileSink.class.getName() + "," + PlainSink.class.getName());
+        Path outputFile = dir.resolve("TEST-sim.xml");
+        generator.writeReports(results(), outputFile);
+
+        assertEquals(List.of(outputFile, dir.resolve("TEST-sim.levels.txt"), dir.resolve("TEST-sim.plain.txt")),
+            generator.reportFiles(outputFile));
+        assertTrue(Files.readString(outputFile).contains("<testsuite"));
+        assertEquals("[50.0, 75.0, 95.0, 99.0, 99.9]", Files.readString(dir.resolve("TEST-sim.levels.txt")));
+        assertEquals("plain", Files.readString(dir.resolve("TEST-sim.plain.txt")));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+            () -> new GatlingJUnitReportGenerator("junit,com.example.reporting.NoSuchSink"));
+        assertEquals("Unknown report sink: com.example.reporting.NoSuchSink", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new GatlingJUnitReportGenerator("java.lang.String"));
+    }
+
+    @Test
+    void onlyTheJUnitReportIsWrittenByDefault() {
+        Path outputFile = dir.resolve("TEST-sim.xml");
+        assertEquals(List.of(outputFile), new GatlingJUnitReportGenerator().reportFiles(outputFile));
+    }
+
+    public static class PercentileSink implements ReportSink {
+        private final double[] percentiles;
+
+        public PercentileSink(double[] percentiles) {
+            this.percentiles = percentiles;
+        }
+
+        @Override
+        public String fileSuffix() {
+            return ".levels.txt";
+        }
+
+        @Override
+        public void write(GatlingJUnitReportGenerator.TestResults results, Writer out) throws Exception {
+            out.write(Arrays.toString(percentiles));
+        }
+    }
+
+    public static class PlainSink implements ReportSink {
+        @Override
+        public String fileSuffix() {
+            return ".plain.txt";
+        }
+
+        @Override
+        public void write(GatlingJUnitReportGenerator.TestResults results, Writer out) throws Exception {
+            out.write("plain");
+        }
+    }
+
+    private static GatlingJUnitReportGenerator.TestResults results() {
+        GatlingJUnitReportGenerator.TestResults results = new GatlingJUnitReportGenerator.TestResults();
+        results.simulationName = "Sim";
+        results.startTime = 1_000_000L;
+        results.recordUserStart(1_000_000L);
+        results.recordRequest(AWKWARD_NAME, 1_000_000L, 1_000_100L, true);
+        results.recordRequest(AWKWARD_NAME, 1_000_100L, 1_000_300L, true);
+        results.recordRequest(AWKWARD_NAME, 1_000_300L, 1_000_601L, false);
+        results.recordUserEnd(1_000_601L);
+        results.finish();
+        return results;
+    }
+
+    private static String write(ReportSink sink, GatlingJUnitReportGenerator.TestResults results) throws Exception {
+        StringWriter out = new StringWriter();
+        sink.write(results, out);
+        return out.toString();
+    }
+
+    private static double sampleValue(List<String> lines, String series) {
+        return lines.stream()
+            .filter(line -> line.startsWith(series + " "))
+            .mapToDouble(line -> Double.parseDouble(line.substring(series.length() + 1)))
+            .findFirst()
+            .orElseThrow(() -> new AssertionError("No sample " + series));
+    }
+
+    private static List<String> fieldNames(JsonNode node) {
+        List<String> names = new ArrayList<>();
+        node.fieldNames().forEachRemaining(names::add);
+        return names;
+    }
+}
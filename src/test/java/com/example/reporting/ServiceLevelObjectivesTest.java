@@ -0,0 +1,148 @@
+package com.example.reporting;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ServiceLevelObjectivesTest {
+
+    private static final String OBJECTIVES = """
+        {
+          "simulations": {
+            "*": {
+              "run": { "maxErrorPercent": 5 },
+              "requests": { "*": { "maxResponseTimeMs": 5000, "minSuccessRatePercent": 90 } }
+            },
+            "simulations.Checkout": {
+              "run": { "minRequestsPerSecond": 10 },
+              "requests": {
+                "*": { "maxResponseTimeMs": 2000 },
+                "Pay": { "minSuccessRatePercent": 99.5, "percentiles": { "99": 300, "50": 100 } }
+              }
+            }
+          }
+        }
+        """;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void specificEntriesOverrideFieldsOfTheWildcards() throws Exception {
+        ServiceLevelObjectives objectives = load(OBJECTIVES);
+        Subject subject = subject(1_000, 0, 100);
+
+        assertEquals(List.of("Pay_Response_Time_Under_2000ms", "Pay_Success_Rate_Above_99_5_Percent",
+                "Pay_p50_Under_100ms", "Pay_p99_Under_300ms"),
+            testNames(objectives.evaluateRequest("simulations.Checkout", "Pay", subject.named("Pay"))));
+        assertEquals(List.of("Browse_Response_Time_Under_2000ms", "Browse_Success_Rate_Above_90_Percent"),
+            testNames(objectives.evaluateRequest("simulations.Checkout", "Browse", subject.named("Browse"))));
+        assertEquals(List.of("Browse_Response_Time_Under_5000ms", "Browse_Success_Rate_Above_90_Percent"),
+            testNames(objectives.evaluateRequest("simulations.Other", "Browse", subject.named("Browse"))));
+        assertEquals(List.of("Run_Throughput_Above_10_rps", "Run_Error_Budget_5_Percent"),
+            testNames(objectives.evaluateRun("simulations.Checkout", subject.named("Run"))));
+    }
+
+    @Test
+    void breachesAreReported() throws Exception {
+        ServiceLevelObjectives objectives = load(OBJECTIVES);
+        List<ServiceLevelObjectives.Outcome> outcomes =
+            objectives.evaluateRequest("simulations.Checkout", "Pay", subject(200, 20, 250).named("Pay"));
+        assertEquals(List.of(false, true, true, false), outcomes.stream().map(ServiceLevelObjectives.Outcome::failed).toList());
+        assertEquals("Success rate 90.0% is below 99.5% threshold", outcomes.get(1).failureMessage());
+        assertEquals("p50 response time 250ms exceeds 100ms threshold", outcomes.get(2).failureMessage());
+    }
+
+    @Test
+    void zeroErrorBudgetIsWordedWithoutAShare() throws Exception {
+        ServiceLevelObjectives objectives = load("""
+            { "simulations": { "*": { "run": { "maxErrorPercent": 0 } } } }
+            """);
+        assertFalse(objectives.evaluateRun("Sim", subject(100, 0, 10).named("Run")).get(0).failed());
+        String message = objectives.evaluateRun("Sim", subject(100, 2, 10).named("Run")).get(0).failureMessage();
+        assertEquals("Error rate 2.00% (2 failed requests) where no errors are allowed", message);
+
+        objectives = load("""
+            { "simulations": { "*": { "run": { "maxErrorPercent": 1 } } } }
+            """);
+        assertEquals("Error rate 2.00% exceeds the 1% error budget (200% of budget used)",
+            objectives.evaluateRun("Sim", subject(100, 2, 10).named("Run")).get(0).failureMessage());
+    }
+
+    @Test
+    void messagesDoNotDependOnTheDefaultLocale() throws Exception {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            assertEquals("Success rate 90.0% is below 99.5% threshold", load(OBJECTIVES)
+                .evaluateRequest("simulations.Checkout", "Pay", subject(200, 20, 50).named("Pay")).get(1).failureMessage());
+
+            // Three windows, the second of them slow
+            WindowedMetrics windows = new WindowedMetrics(1000, false);
+            for (int i = 0; i < 200; i++) {
+                windows.record(1_000_000 + i * 15, i >= 67 && i < 134 ? 500 : 50, i % 67 != 0);
+            }
+            ServiceLevelObjectives.Subject run = new ServiceLevelObjectives.Subject("Run", 200, 3, 500, 10,
+                new LatencyHistogram(), null, windows.windows(), 1000);
+            List<String> messages = load("""
+                { "simulations": { "*": { "run": { "minRequestsPerSecond": 30, "maxErrorPercent": 1,
+                  "windows": [ { "maxMeanResponseTimeMs": 100, "maxBreachingWindowsPercent": 12.5 } ] } } } }
+                """).evaluateRun("Sim", run).stream().map(ServiceLevelObjectives.Outcome::failureMessage).toList();
+            assertEquals("Throughput 20.00 req/s is below 30 req/s threshold", messages.get(0));
+            assertEquals("Error rate 1.50% exceeds the 1% error budget (150% of budget used)", messages.get(1));
+            assertTrue(messages.get(2).startsWith("1 of 3 windows (33.3%) breach Mean Under 100ms, 12.5% allowed; first breach at "),
+                messages.get(2));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    void missingFileFallsBackToTheOriginalGates() throws Exception {
+        ServiceLevelObjectives objectives = ServiceLevelObjectives.load(dir.resolve("missing.json"));
+        assertEquals(List.of("Get_Response_Time_Under_5000ms", "Get_Success_Rate_Above_90_Percent"),
+            testNames(objectives.evaluateRequest("Sim", "Get", subject(10, 0, 10).named("Get"))));
+        assertEquals(List.of(), objectives.evaluateRun("Sim", subject(10, 0, 10).named("Run")));
+    }
+
+    @Test
+    void windowPercentilesAreOnlyAcceptedForTheRun() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> load("""
+            { "simulations": { "*": { "requests": { "Get": { "windows": [ { "percentile": 95, "maxMs": 100 } ] } } } } }
+            """));
+        load("""
+            { "simulations": { "*": { "run": { "windows": [ { "percentile": 95, "maxMs": 100 } ] } } } }
+            """);
+    }
+
+    private ServiceLevelObjectives load(String json) throws Exception {
+        Path file = dir.resolve("slo.json");
+        Files.writeString(file, json);
+        return ServiceLevelObjectives.load(file);
+    }
+
+    /**
+     * {@code count} requests over 10 seconds, all taking {@code responseTimeMs}.
+     */
+    private static Subject subject(long count, long failures, long responseTimeMs) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordCount(responseTimeMs, count);
+        return new Subject(count, failures, responseTimeMs, histogram);
+    }
+
+    private record Subject(long count, long failures, long maxTimeMs, LatencyHistogram histogram) {
+
+        ServiceLevelObjectives.Subject named(String name) {
+            return new ServiceLevelObjectives.Subject(name, count, failures, maxTimeMs, 10, histogram, null, List.of(), 1000);
+        }
+    }
+
+    private static List<String> testNames(List<ServiceLevelObjectives.Outcome> outcomes) {
+        return outcomes.stream().map(ServiceLevelObjectives.Outcome::testName).toList();
+    }
+}
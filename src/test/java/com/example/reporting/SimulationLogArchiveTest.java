@@ -0,0 +1,121 @@
+package com.example.reporting;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationLogArchiveTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void archiveRebuildsTheParsedResults() throws Exception {
+        // More records than fit in one block
+        Path log = TestLogs.write(dir.resolve("simulation.log"), 150_000, 40, 3);
+        GatlingJUnitReportGenerator.TestResults parsed = new GatlingJUnitReportGenerator().parseAndArchive(log);
+
+        Path archive = dir.resolve(SimulationLogArchive.FILE_NAME);
+        assertTrue(Files.size(archive) < Files.size(log) / 4, "Archive is not compact");
+        GatlingJUnitReportGenerator.TestResults read = SimulationLogArchive.read(archive);
+        TestLogs.assertSameResults(parsed, read);
+        assertEquals(parsed.concurrency.maxActiveUsers, read.concurrency.maxActiveUsers);
+
+        GatlingJUnitReportGenerator.TestResults text;
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            text = SimulationLogTokenizer.parseRange(channel, 0, channel.size());
+        }
+        TestLogs.assertSameResults(text, read);
+    }
+
+    @Test
+    void visitorSeesRequestsInLogOrder() throws Exception {
+        Path log = dir.resolve("simulation.log");
+        Files.writeString(log, "RUN\tsimulations.TestSimulation\ttestsimulation\t1000\tTest run\t3.11.5\n"
+            + "USER\tScenario\tSTART\t1000\n"
+            + "REQUEST\t\tB\t1000\t1050\tOK\t\n"
+            + "REQUEST\t\tA\t990\t1100\tKO\tfailed\n"
+            + "REQUEST\t\tB\t1200\t1201\tOK\t\n"
+            + "USER\tScenario\tEND\t1201\n");
+        new GatlingJUnitReportGenerator().parseAndArchive(log);
+
+        List<String> events = new ArrayList<>();
+        SimulationLogArchive.Trailer trailer = SimulationLogArchive.forEachRequest(dir.resolve(SimulationLogArchive.FILE_NAME),
+            new SimulationLogArchive.RequestVisitor() {
+                @Override
+                public void onRequest(String requestName, long startTime, long endTime, boolean ok) {
+                    events.add(requestName + " " + startTime + "-" + endTime + " " + (ok ? "OK" : "KO"));
+                }
+
+                @Override
+                public void onUserStart(long timestamp) {
+                    events.add("start " + timestamp);
+                }
+
+                @Override
+                public void onUserEnd(long timestamp) {
+                    events.add("end " + timestamp);
+                }
+            });
+        assertEquals(List.of("B 1000-1050 OK", "A 990-1100 KO", "B 1200-1201 OK", "start 1000", "end 1201"), events);
+        assertEquals("simulations.TestSimulation", trailer.simulationName());
+        assertEquals(1000, trailer.runStart());
+        assertEquals(3, trailer.recordCount());
+    }
+
+    @Test
+    void failedParseLeavesThePreviousArchive() throws Exception {
+        Path log = TestLogs.write(dir.resolve("simulation.log"), 1_000, 3, 5);
+        new GatlingJUnitReportGenerator().parseAndArchive(log);
+        Path archive = dir.resolve(SimulationLogArchive.FILE_NAME);
+        byte[] previous = Files.readAllBytes(archive);
+
+        Files.writeString(log, "REQUEST\t\tBroken\t1000\tnot-a-number\tOK\t\n", StandardOpenOption.APPEND);
+        assertThrows(NumberFormatException.class, () -> new GatlingJUnitReportGenerator().parseAndArchive(log));
+        assertArrayEquals(previous, Files.readAllBytes(archive));
+        assertFalse(Files.exists(dir.resolve(SimulationLogArchive.FILE_NAME + ".tmp")));
+    }
+
+    @Test
+    void truncatedArchivesAreRejected() throws Exception {
+        Path log = TestLogs.write(dir.resolve("simulation.log"), 1_000, 3, 5);
+        new GatlingJUnitReportGenerator().parseAndArchive(log);
+        byte[] complete = Files.readAllBytes(dir.resolve(SimulationLogArchive.FILE_NAME));
+
+        Path archive = dir.resolve("truncated.glar");
+        for (int length = 8; length < complete.length; length++) {
+            Files.write(archive, Arrays.copyOf(complete, length));
+            IOException e = assertThrows(IOException.class, () -> SimulationLogArchive.read(archive), "length " + length);
+            assertTrue(e.getMessage().startsWith("Truncated archive"), e.getMessage());
+        }
+
+        // Negative or oversized counts and lengths in the first block header
+        for (int offset = 8; offset < 20; offset += 4) {
+            for (int value : new int[] {-2, Integer.MIN_VALUE, complete.length}) {
+                byte[] corrupt = complete.clone();
+                ByteBuffer.wrap(corrupt).putInt(offset, value);
+                Files.write(archive, corrupt);
+                IOException e = assertThrows(IOException.class, () -> SimulationLogArchive.read(archive));
+                assertTrue(e.getMessage().startsWith("Truncated archive"), e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    void otherVersionsAreRejected() throws Exception {
+        Path archive = dir.resolve(SimulationLogArchive.FILE_NAME);
+        Files.write(archive, ByteBuffer.allocate(16).put("GLAR".getBytes(StandardCharsets.US_ASCII)).putInt(1).putInt(0).array());
+        IOException e = assertThrows(IOException.class, () -> SimulationLogArchive.read(archive));
+        assertTrue(e.getMessage().contains("version 1"), e.getMessage());
+    }
+}
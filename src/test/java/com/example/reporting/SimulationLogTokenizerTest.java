@@ -0,0 +1,102 @@
+package com.example.reporting;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SimulationLogTokenizerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recordsAreReadFieldByField() {
+        GatlingJUnitReportGenerator.TestResults results = new GatlingJUnitReportGenerator.TestResults();
+        SimulationLogTokenizer tokenizer = new SimulationLogTokenizer();
+        for (String line : List.of(
+                "RUN\tsimulations.TestSimulation\ttestsimulation\t1000\tTest run\t3.11.5",
+                "USER\tScenario\tSTART\t1000",
+                "REQUEST\t\tGet user\t1000\t1012\tOK\t",
+                "REQUEST\t\tGet user\t1002\t1042\tKO\tstatus.find.is(200), but actually found 500\r",
+                "REQUEST\t\tTruncated\t1003",
+                "ERROR\tsomething went wrong\t1050",
+                "",
+                "USER\tScenario\tEND\t1050")) {
+            byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+            tokenizer.tokenize(bytes, 0, bytes.length, results);
+        }
+
+        assertEquals("simulations.TestSimulation", results.simulationName);
+        assertEquals(1000L, results.startTime);
+        assertEquals(2, results.totalRequests);
+        assertEquals(1, results.failedRequests);
+        assertEquals(List.of("Get user"), List.copyOf(results.requestSummaries.keySet()));
+        assertEquals(12, results.requestSummaries.get("Get user").minTimeMs);
+        assertEquals(40, results.requestSummaries.get("Get user").maxTimeMs);
+        assertEquals(1, results.timeline.windows().get(0).userStarts);
+        assertEquals(1, results.timeline.windows().get(0).userEnds);
+    }
+
+    @Test
+    void badTimestampsAreReported() {
+        byte[] bytes = "REQUEST\t\tGet\t1000\t10x0\tOK\t".getBytes(StandardCharsets.UTF_8);
+        NumberFormatException e = assertThrows(NumberFormatException.class,
+            () -> new SimulationLogTokenizer().tokenize(bytes, 0, bytes.length, new GatlingJUnitReportGenerator.TestResults()));
+        assertTrue(e.getMessage().contains("10x0"), e.getMessage());
+    }
+
+    @Test
+    void namesAreInternedAcrossResizes() {
+        SimulationLogTokenizer.RequestNameTable table = new SimulationLogTokenizer.RequestNameTable();
+        Map<String, String> interned = new HashMap<>();
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 500; i++) {
+                byte[] bytes = ("xx Request " + i + " yy").getBytes(StandardCharsets.UTF_8);
+                String name = table.intern(bytes, 3, bytes.length - 3);
+                assertEquals("Request " + i, name);
+                String first = interned.putIfAbsent(name, name);
+                if (first != null) {
+                    assertSame(first, name);
+                }
+            }
+        }
+    }
+
+    @Test
+    void rangesSplitAnywhereReadEachLineOnce() throws Exception {
+        Path log = TestLogs.write(dir.resolve("simulation.log"), 2_000, 4, 9);
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            GatlingJUnitReportGenerator.TestResults whole = SimulationLogTokenizer.parseRange(channel, 0, channel.size());
+            Random random = new Random(3);
+            for (int i = 0; i < 20; i++) {
+                long split = random.nextLong(channel.size());
+                GatlingJUnitReportGenerator.TestResults parts = SimulationLogTokenizer.parseRange(channel, 0, split);
+                parts.merge(SimulationLogTokenizer.parseRange(channel, split, channel.size()));
+                TestLogs.assertSameResults(whole, parts);
+            }
+        }
+    }
+
+    @Test
+    void linesLongerThanTheReadBufferAreKept() throws Exception {
+        String longName = "R".repeat(3 << 20);
+        Path log = Files.writeString(dir.resolve("simulation.log"),
+            "REQUEST\t\tShort\t1000\t1001\tOK\t\n"
+            + "REQUEST\t\t" + longName + "\t1000\t1002\tOK\t\n"
+            + "REQUEST\t\tShort\t1000\t1003\tKO\t\n");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.READ)) {
+            GatlingJUnitReportGenerator.TestResults results = SimulationLogTokenizer.parseRange(channel, 0, channel.size());
+            assertEquals(3, results.totalRequests);
+            assertEquals(2, results.requestSummaries.get("Short").count);
+            assertEquals(2, results.requestSummaries.get(longName).maxTimeMs);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.reporting;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Small simulation.log files for the parser and archive tests, with USER records, failures and
+ * long-tailed response times, a check that two parses agree, and in-memory runs for the stores.
+ */
+final class TestLogs {
+
+    static final long RUN_START = 1758575836567L;
+
+    private TestLogs() {
+    }
+
+    static Path write(Path file, int requests, int requestNames, long seed) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("RUN\tsimulations.TestSimulation\ttestsimulation\t" + RUN_START + "\tTest run\t3.11.5\n");
+            long now = RUN_START + 10;
+            for (int i = 0; i < requests; i++) {
+                now += random.nextInt(3);
+                if (i % 3 == 0) {
+                    out.write("USER\tTest Scenario\tSTART\t" + now + "\n");
+                }
+                long responseTime = Math.max(1, (long) Math.exp(2.5 + random.nextGaussian() * 1.1));
+                boolean ok = random.nextInt(20) != 0;
+                out.write("REQUEST\t\tRequest " + random.nextInt(requestNames) + "\t" + now + "\t" + (now + responseTime)
+                    + (ok ? "\tOK\t\n" : "\tKO\tstatus.find.is(200), but actually found 500\n"));
+                if (i % 3 == 2) {
+                    out.write("USER\tTest Scenario\tEND\t" + (now + responseTime) + "\n");
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * A run of "Sim" with {@code requests} "Get" requests taking 1 to {@code requests} ms, the
+     * first of them failed, and one "Post" request.
+     */
+    static GatlingJUnitReportGenerator.TestResults run(long runStart, int requests) {
+        GatlingJUnitReportGenerator.TestResults results = new GatlingJUnitReportGenerator.TestResults();
+        results.simulationName = "Sim";
+        results.startTime = runStart;
+        for (int i = 1; i <= requests; i++) {
+            results.recordRequest("Get", runStart, runStart + i, i > 1);
+        }
+        results.recordRequest("Post", runStart, runStart + 100, true);
+        return results;
+    }
+
+    static void assertSameResults(GatlingJUnitReportGenerator.TestResults expected,
+                                  GatlingJUnitReportGenerator.TestResults actual) {
+        assertEquals(expected.simulationName, actual.simulationName);
+        assertEquals(expected.startTime, actual.startTime);
+        assertEquals(expected.endTime, actual.endTime);
+        assertEquals(expected.totalRequests, actual.totalRequests);
+        assertEquals(expected.failedRequests, actual.failedRequests);
+        assertEquals(List.copyOf(expected.requestSummaries.keySet()), List.copyOf(actual.requestSummaries.keySet()));
+        for (Map.Entry<String, GatlingJUnitReportGenerator.RequestSummary> entry : expected.requestSummaries.entrySet()) {
+            GatlingJUnitReportGenerator.RequestSummary e = entry.getValue();
+            GatlingJUnitReportGenerator.RequestSummary a = actual.requestSummaries.get(entry.getKey());
+            assertEquals(e.count, a.count, entry.getKey());
+            assertEquals(e.failures, a.failures, entry.getKey());
+            assertEquals(e.totalTimeMs, a.totalTimeMs, entry.getKey());
+            assertEquals(e.minTimeMs, a.minTimeMs, entry.getKey());
+            assertEquals(e.maxTimeMs, a.maxTimeMs, entry.getKey());
+            for (double percentile : new double[] {50, 90, 99, 99.9}) {
+                assertEquals(e.histogram.valueAtPercentile(percentile), a.histogram.valueAtPercentile(percentile), entry.getKey());
+            }
+        }
+
+        List<WindowedMetrics.Window> expectedWindows = expected.timeline.windows();
+        List<WindowedMetrics.Window> actualWindows = actual.timeline.windows();
+        assertEquals(expectedWindows.size(), actualWindows.size());
+        for (int i = 0; i < expectedWindows.size(); i++) {
+            WindowedMetrics.Window e = expectedWindows.get(i);
+            WindowedMetrics.Window a = actualWindows.get(i);
+            assertEquals(e.startMillis, a.startMillis);
+            assertEquals(e.count, a.count);
+            assertEquals(e.failures, a.failures);
+            assertEquals(e.totalTimeMs, a.totalTimeMs);
+            assertEquals(e.busyMillis, a.busyMillis);
+            assertEquals(e.userStarts, a.userStarts);
+            assertEquals(e.userEnds, a.userEnds);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.reporting;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrendStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void runsAreKeptInStartOrderWhateverOrderTheyArrive() throws Exception {
+        TrendStore store = new TrendStore(dir);
+        for (long runStart : new long[] {1_000, 3_000, 2_000, 5_000, 500}) {
+            store.append(TestLogs.run(runStart, (int) (runStart / 100)));
+        }
+        // The same run reported again replaces its record
+        store.append(TestLogs.run(3_000, 7));
+
+        assertEquals(List.of(500L, 1_000L, 2_000L, 3_000L, 5_000L), runStarts(store.last("Sim", "Get", 10, Long.MAX_VALUE)));
+        assertEquals(List.of(1_000L, 2_000L), runStarts(store.last("Sim", "Get", 2, 3_000)));
+        assertEquals(List.of(), store.last("Sim", "Get", 2, 500));
+        assertEquals(7, store.last("Sim", "Get", 1, 5_000).get(0).count());
+        assertEquals(List.of("Get", "Post"), store.requests("Sim"));
+        assertEquals(List.of("Sim"), store.simulations());
+
+        try (Stream<Path> files = Files.walk(dir)) {
+            assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")), "Temporary file left behind");
+        }
+    }
+
+    @Test
+    void recordsHaveAFixedLayout() throws Exception {
+        TrendStore store = new TrendStore(dir);
+        store.append(TestLogs.run(1_000, 10));
+        store.append(TestLogs.run(2_000, 20));
+
+        Path file;
+        try (Stream<Path> files = Files.walk(dir)) {
+            file = files.filter(path -> path.getFileName().toString().startsWith("Get-")).findFirst().orElseThrow();
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertEquals(0x474C5452, bytes.getInt());
+        assertEquals(1, bytes.getInt());
+        byte[] name = new byte[bytes.getInt()];
+        bytes.get(name);
+        assertEquals("Get", new String(name, StandardCharsets.UTF_8));
+        assertEquals(2 * TrendStore.RECORD_BYTES, bytes.remaining());
+
+        // runStart count failures minMs maxMs totalTimeMs, then the percentiles
+        assertEquals(1_000, bytes.getLong());
+        assertEquals(10, bytes.getLong());
+        assertEquals(1, bytes.getLong());
+        assertEquals(1, bytes.getLong());
+        assertEquals(10, bytes.getLong());
+        assertEquals(55, bytes.getLong());
+        assertEquals(5, bytes.getLong());
+
+        TrendStore.Entry entry = store.last("Sim", "Get", 1, 2_000).get(0);
+        assertEquals(5.5, entry.meanMs());
+        assertEquals(10.0, entry.errorPercent());
+        assertEquals(10, entry.percentile(99.9));
+        assertThrows(IllegalArgumentException.class, () -> entry.percentile(42));
+    }
+
+    @Test
+    void runsWithoutAStartTimeAreSkipped() throws Exception {
+        TrendStore store = new TrendStore(dir);
+        GatlingJUnitReportGenerator.TestResults results = TestLogs.run(1_000, 5);
+        results.startTime = null;
+        store.append(results);
+        assertEquals(List.of(), store.simulations());
+    }
+
+    private static List<Long> runStarts(List<TrendStore.Entry> entries) {
+        return entries.stream().map(TrendStore.Entry::runStart).toList();
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.reporting;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WindowedMetricsTest {
+
+    private static final long START = 1_000_000;
+
+    @Test
+    void runsLongerThanMaxWindowsAreCoarsened() {
+        WindowedMetrics capped = new WindowedMetrics(1000, true, 10);
+        WindowedMetrics reference = new WindowedMetrics(4000, true);
+        for (long t = START; t < START + 25_000; t += 250) {
+            long responseTime = 10 + (t / 250) % 7;
+            capped.record(t, responseTime, t % 3000 != 0);
+            reference.record(t, responseTime, t % 3000 != 0);
+        }
+
+        // 25 windows of 1s become 13 of 2s, then 7 of 4s
+        assertEquals(4000, capped.getWindowMillis());
+        assertEquals(7, capped.windows().size());
+        assertSameWindows(reference, capped);
+    }
+
+    @Test
+    void mergingChunksOfDifferentWidthsMatchesOneRecording() {
+        WindowedMetrics reference = new WindowedMetrics(4000, true);
+        for (boolean coarserFirst : new boolean[] {true, false}) {
+            // The first chunk spans 30s, enough to be coarsened twice; the second spans 8s
+            WindowedMetrics first = new WindowedMetrics(1000, true, 10);
+            WindowedMetrics second = new WindowedMetrics(1000, true, 10);
+            for (long t = START; t < START + 38_000; t += 100) {
+                long responseTime = 5 + (t / 100) % 13;
+                (t < START + 30_000 ? first : second).record(t, responseTime, true);
+                if (coarserFirst) {
+                    reference.record(t, responseTime, true);
+                }
+            }
+            assertEquals(4000, first.getWindowMillis());
+            assertEquals(1000, second.getWindowMillis());
+
+            WindowedMetrics merged = coarserFirst ? first : second;
+            merged.merge(coarserFirst ? second : first);
+            assertEquals(4000, merged.getWindowMillis());
+            assertSameWindows(reference, merged);
+        }
+    }
+
+    @Test
+    void warmUpRampIsTruncated() {
+        WindowedMetrics metrics = new WindowedMetrics(1000, false);
+        for (int window = 0; window < 60; window++) {
+            // Ten windows of falling latency, then a steady state with a little jitter
+            long responseTime = window < 10 ? 500 - 40 * window : 50 + window % 3;
+            record(metrics, window, responseTime);
+        }
+        assertEquals(START + 10_000, metrics.detectSteadyStateStart());
+    }
+
+    @Test
+    void flatRunsAndShortRunsHaveNoWarmUp() {
+        WindowedMetrics flat = new WindowedMetrics(1000, false);
+        for (int window = 0; window < 60; window++) {
+            record(flat, window, 50 + window % 3);
+        }
+        assertEquals(Long.MIN_VALUE, flat.detectSteadyStateStart());
+
+        WindowedMetrics constant = new WindowedMetrics(1000, false);
+        WindowedMetrics shortRun = new WindowedMetrics(1000, false);
+        for (int window = 0; window < 60; window++) {
+            record(constant, window, 50);
+            if (window < 9) {
+                record(shortRun, window, window < 3 ? 900 : 50);
+            }
+        }
+        assertEquals(Long.MIN_VALUE, constant.detectSteadyStateStart());
+        assertEquals(Long.MIN_VALUE, shortRun.detectSteadyStateStart());
+    }
+
+    private static void record(WindowedMetrics metrics, int window, long responseTime) {
+        for (int i = 0; i < 20; i++) {
+            metrics.record(START + window * 1000L + i * 50, responseTime, true);
+        }
+    }
+
+    private static void assertSameWindows(WindowedMetrics expected, WindowedMetrics actual) {
+        List<WindowedMetrics.Window> expectedWindows = expected.windows();
+        List<WindowedMetrics.Window> actualWindows = actual.windows();
+        assertEquals(expectedWindows.size(), actualWindows.size());
+        for (int i = 0; i < expectedWindows.size(); i++) {
+            WindowedMetrics.Window want = expectedWindows.get(i);
+            WindowedMetrics.Window got = actualWindows.get(i);
+            assertEquals(want.startMillis, got.startMillis);
+            assertEquals(want.count, got.count, "count at " + want.startMillis);
+            assertEquals(want.failures, got.failures);
+            assertEquals(want.totalTimeMs, got.totalTimeMs);
+            assertEquals(want.minTimeMs, got.minTimeMs);
+            assertEquals(want.maxTimeMs, got.maxTimeMs);
+            assertEquals(want.histogram.valueAtPercentile(99), got.histogram.valueAtPercentile(99));
+        }
+    }
+}
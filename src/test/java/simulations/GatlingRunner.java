@@ -1,14 +1,30 @@
 package simulations;
 
+import com.example.reporting.LiveReportFollower;
 import io.gatling.app.Gatling;
 import io.gatling.core.config.GatlingPropertiesBuilder;
 
+import java.nio.file.Paths;
+
 /**
  * Custom Gatling runner that executes JavaApiTestSimulation with proper configuration
  */
 public class GatlingRunner {
 
+    private static final int SLO_BREACH_EXIT_CODE = 2;
+
     public static void main(String[] args) {
+        // Optionally watch simulation.log while the run is in progress and stop early on a sustained SLO breach
+        if (Boolean.getBoolean("gatling.report.follow")) {
+            LiveReportFollower follower = LiveReportFollower.fromSystemProperties(Paths.get("build/reports/gatling"), () -> {
+                System.err.println("Stopping Gatling run early: SLO breached");
+                System.exit(SLO_BREACH_EXIT_CODE);
+            });
+            Thread followerThread = new Thread(follower, "gatling-live-report");
+            followerThread.setDaemon(true);
+            followerThread.start();
+        }
+
         // Build Gatling properties with explicit configuration
         GatlingPropertiesBuilder props = new GatlingPropertiesBuilder()
             .simulationClass("simulations.JavaApiTestSimulation")